@@ -0,0 +1,79 @@
+#!/usr/bin/env bash
+#
+# Cold start benchmark: time from JVM launch to the first successful /health
+# and /api/users/me responses.
+#
+# Usage:
+#   mvn -Pfast-start -DskipTests package
+#   TOKEN=<jwt of an existing user> scripts/startup-benchmark.sh [plain|fast-start] [runs]
+#
+# 'plain' runs the regular fat jar, 'fast-start' runs the extracted AOT build with
+# the CDS archive. Without TOKEN only /health is measured. Extra JVM options
+# (datasource overrides, ...) can be passed through JAVA_OPTS. A run fails if the JVM
+# exits or does not answer within TIMEOUT seconds (default 180).
+
+set -euo pipefail
+
+MODE="${1:-plain}"
+RUNS="${2:-5}"
+PORT="${PORT:-18080}"
+TIMEOUT="${TIMEOUT:-180}"
+TARGET="$(cd "$(dirname "$0")/.." && pwd)/target"
+JAR_NAME="users_service-0.0.1-SNAPSHOT.jar"
+
+case "$MODE" in
+    plain)
+        CMD=(java ${JAVA_OPTS:-} -jar "$TARGET/$JAR_NAME")
+        ;;
+    fast-start)
+        CMD=(java -XX:SharedArchiveFile="$TARGET/fast-start/application.jsa" -Dspring.aot.enabled=true
+             ${JAVA_OPTS:-} -jar "$TARGET/fast-start/$JAR_NAME")
+        ;;
+    *)
+        echo "Unknown mode '$MODE', expected plain or fast-start" >&2
+        exit 1
+        ;;
+esac
+
+now_ms() {
+    echo $(( $(date +%s%N) / 1000000 ))
+}
+
+# Polls until the URL answers 200, prints the elapsed ms since $1.
+# Fails when the JVM ($pid) has exited or after TIMEOUT seconds.
+wait_for() {
+    local start="$1" url="$2"
+    shift 2
+    local deadline=$(( start + TIMEOUT * 1000 ))
+    until [ "$(curl -s -o /dev/null -w '%{http_code}' "$@" "$url")" = "200" ]; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "JVM exited before $url answered, see $log" >&2
+            return 1
+        fi
+        if [ "$(now_ms)" -ge "$deadline" ]; then
+            echo "No answer from $url after ${TIMEOUT}s, see $log" >&2
+            kill "$pid"
+            return 1
+        fi
+        sleep 0.01
+    done
+    echo $(( $(now_ms) - start ))
+}
+
+echo "mode=$MODE runs=$RUNS"
+for run in $(seq 1 "$RUNS"); do
+    log="$TARGET/startup-benchmark-$run.log"
+    start=$(now_ms)
+    PORT="$PORT" "${CMD[@]}" > "$log" 2>&1 &
+    pid=$!
+
+    health_ms=$(wait_for "$start" "http://localhost:$PORT/health")
+    me_ms="-"
+    if [ -n "${TOKEN:-}" ]; then
+        me_ms=$(wait_for "$start" "http://localhost:$PORT/api/users/me" -H "Authorization: Bearer $TOKEN")
+    fi
+
+    echo "run $run: /health ${health_ms} ms, /api/users/me ${me_ms} ms"
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+done
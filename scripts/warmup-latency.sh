@@ -0,0 +1,99 @@
+#!/usr/bin/env bash
+#
+# First-minute latency after startup, with and without the startup warm-up.
+# Starts the service, waits until /actuator/health/readiness answers 200 (what a
+# load balancer waits for), then sends GET /api/users/me back to back for DURATION
+# seconds and prints latency percentiles for the first 100 requests and the whole run.
+#
+# Usage:
+#   mvn -DskipTests package
+#   TOKEN=<jwt of an existing user> scripts/warmup-latency.sh [warmup|no-warmup] [runs]
+#
+# Rate limiting is turned off for the run: back to back requests of one user would
+# otherwise mostly get 429. Only 200 responses are counted, the others are reported.
+# Extra JVM options (datasource overrides, ...) can be passed through JAVA_OPTS.
+# A run fails when the JVM exits or is not ready within TIMEOUT seconds (default 180).
+
+set -euo pipefail
+
+MODE="${1:-warmup}"
+RUNS="${2:-3}"
+PORT="${PORT:-18080}"
+DURATION="${DURATION:-60}"
+TIMEOUT="${TIMEOUT:-180}"
+TARGET="$(cd "$(dirname "$0")/.." && pwd)/target"
+JAR_NAME="users_service-0.0.1-SNAPSHOT.jar"
+
+if [ -z "${TOKEN:-}" ]; then
+    echo "TOKEN must hold a valid JWT of an existing user" >&2
+    exit 1
+fi
+
+case "$MODE" in
+    warmup)    WARMUP=true ;;
+    no-warmup) WARMUP=false ;;
+    *)
+        echo "Unknown mode '$MODE', expected warmup or no-warmup" >&2
+        exit 1
+        ;;
+esac
+
+now_ms() {
+    echo $(( $(date +%s%N) / 1000000 ))
+}
+
+# Prints count, mean, p50, p90, p99 and max of the latencies (ms, one per line) on stdin
+summarize() {
+    sort -n | awk 'function pct(p,  i) { i = int(NR * p); return v[i > 0 ? i : 1] }
+        { v[NR] = $1; sum += $1 }
+        END {
+            if (NR == 0) { print "no samples"; exit }
+            printf "n=%d mean=%.1f p50=%.1f p90=%.1f p99=%.1f max=%.1f ms\n", NR, sum / NR,
+                pct(0.50), pct(0.90), pct(0.99), v[NR]
+        }'
+}
+
+echo "mode=$MODE runs=$RUNS duration=${DURATION}s"
+for run in $(seq 1 "$RUNS"); do
+    samples="$TARGET/warmup-latency-$MODE-$run.txt"
+    : > "$samples"
+
+    log="$TARGET/warmup-latency-$MODE-$run.log"
+    start=$(now_ms)
+    PORT="$PORT" java ${JAVA_OPTS:-} -Drate-limit.enabled=false -Dwarmup.enabled="$WARMUP" \
+        -jar "$TARGET/$JAR_NAME" > "$log" 2>&1 &
+    pid=$!
+
+    deadline=$(( start + TIMEOUT * 1000 ))
+    until [ "$(curl -s -o /dev/null -w '%{http_code}' "http://localhost:$PORT/actuator/health/readiness")" = "200" ]; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "JVM exited before it was ready, see $log" >&2
+            exit 1
+        fi
+        if [ "$(now_ms)" -ge "$deadline" ]; then
+            echo "Not ready after ${TIMEOUT}s, see $log" >&2
+            kill "$pid"
+            exit 1
+        fi
+        sleep 0.05
+    done
+    ready_ms=$(( $(now_ms) - start ))
+
+    end=$(( $(now_ms) + DURATION * 1000 ))
+    errors=0
+    while [ "$(now_ms)" -lt "$end" ]; do
+        read -r code seconds < <(curl -s -o /dev/null -w '%{http_code} %{time_total}\n' \
+            -H "Authorization: Bearer $TOKEN" "http://localhost:$PORT/api/users/me")
+        if [ "$code" = "200" ]; then
+            awk -v s="$seconds" 'BEGIN { printf "%.3f\n", s * 1000 }' >> "$samples"
+        else
+            errors=$(( errors + 1 ))
+        fi
+    done
+
+    echo "run $run: ready after ${ready_ms} ms, $errors non-200 responses left out"
+    echo "  first 100: $(head -n 100 "$samples" | summarize)"
+    echo "  first min: $(summarize < "$samples")"
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+done
@@ -0,0 +1,8 @@
+package com.itRoad.users_service.Exceptions;
+
+public class BadRequestException extends RuntimeException {
+    public BadRequestException(String message) {
+        // Client input error, the handler echoes the message as a 400
+        super(message, null, false, false);
+    }
+}
@@ -3,7 +3,7 @@ package com.itRoad.users_service.Exceptions;
 public class EmailAlreadyExistsException extends RuntimeException {
 
     public EmailAlreadyExistsException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
 
@@ -0,0 +1,7 @@
+package com.itRoad.users_service.Exceptions;
+
+public class PhoneNumberAlreadyExistsException extends RuntimeException {
+    public PhoneNumberAlreadyExistsException(String message) {
+        super(message, null, false, false);
+    }
+}
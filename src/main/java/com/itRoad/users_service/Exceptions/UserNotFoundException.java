@@ -2,6 +2,7 @@ package com.itRoad.users_service.Exceptions;
 
 public class UserNotFoundException extends RuntimeException {
     public UserNotFoundException(String message) {
-        super(message);
+        // No stack trace: thrown for every 404, and the handler only needs the message
+        super(message, null, false, false);
     }
 }
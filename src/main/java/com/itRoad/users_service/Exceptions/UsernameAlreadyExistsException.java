@@ -2,6 +2,6 @@ package com.itRoad.users_service.Exceptions;
 
 public class UsernameAlreadyExistsException extends RuntimeException {
     public UsernameAlreadyExistsException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
\ No newline at end of file
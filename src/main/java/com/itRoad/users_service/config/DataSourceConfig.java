@@ -0,0 +1,45 @@
+package com.itRoad.users_service.config;
+
+import com.itRoad.users_service.datasource.ConnectionPoolMonitor;
+import com.itRoad.users_service.datasource.InstrumentedDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Replaces the auto-configured pool with an instrumented Hikari pool
+ * whose size is adjusted at runtime by {@link ConnectionPoolMonitor}.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    public InstrumentedDataSource dataSource(DataSourceProperties properties, Environment environment,
+                                             @Value("${datasource.injected-latency-ms:0}") long injectedLatencyMs) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        // Keep honouring spring.datasource.hikari.* like the auto-configured pool did
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        return new InstrumentedDataSource(pool, injectedLatencyMs);
+    }
+
+    @Bean
+    public ConnectionPoolMonitor connectionPoolMonitor(
+            InstrumentedDataSource dataSource,
+            MeterRegistry meterRegistry,
+            @Value("${datasource.adaptive.enabled:true}") boolean adaptive,
+            @Value("${datasource.adaptive.min-size:2}") int minSize,
+            @Value("${datasource.adaptive.max-size:20}") int maxSize,
+            @Value("${datasource.adaptive.target-acquire-ms:20}") double targetAcquireMs,
+            @Value("${datasource.adaptive.throttle-rtt-ms:500}") double throttleRttMs,
+            @Value("${datasource.adaptive.throttle-failure-ratio:0.1}") double throttleFailureRatio,
+            @Value("${datasource.adaptive.throttle-windows:3}") int throttleWindows) {
+        return new ConnectionPoolMonitor(dataSource, meterRegistry, adaptive, minSize, maxSize, targetAcquireMs,
+                throttleRttMs, throttleFailureRatio, throttleWindows);
+    }
+}
@@ -1,10 +1,13 @@
 package com.itRoad.users_service.config;
 
 import com.itRoad.users_service.security.JwtAuthenticationFilter;
+import com.itRoad.users_service.security.RateLimitFilter;
+import com.itRoad.users_service.security.UserRateLimitFilter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
+import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
@@ -20,13 +23,22 @@ import java.util.Arrays;
 
 @Configuration
 @EnableWebSecurity
+// The controllers' @PreAuthorize rules (own profile only, Admin-only operations) need it
+@EnableMethodSecurity
 public class SecurityConfig {
 
     @Autowired
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
+    @Autowired
+    private RateLimitFilter rateLimitFilter;
+
+    @Autowired
+    private UserRateLimitFilter userRateLimitFilter;
+
+    // Static so UserService can get the encoder without waiting for this configuration (and its filters)
     @Bean
-    public PasswordEncoder passwordEncoder() {
+    public static PasswordEncoder passwordEncoder() {
         return new BCryptPasswordEncoder();
     }
 
@@ -44,6 +56,13 @@ public class SecurityConfig {
                         // Endpoints qui nécessitent une authentification
                         .requestMatchers(HttpMethod.GET, "/api/users/**").authenticated()
 
+                        // Opérations en masse : rôle Admin, comme les @PreAuthorize du contrôleur
+                        .requestMatchers(HttpMethod.PUT, "/api/users/bulk/**").hasAuthority("Admin")
+                        .requestMatchers(HttpMethod.POST, "/api/users/bulk/**").hasAuthority("Admin")
+
+                        // PATCH : le contrôleur vérifie ensuite Admin ou son propre profil
+                        .requestMatchers(HttpMethod.PATCH, "/api/users/**").hasAnyAuthority("Admin", "Adherant")
+
                         // Endpoints qui nécessitent le rôle ADMIN
                         .requestMatchers(HttpMethod.POST, "/api/users/**").hasAuthority("ADHERANT")
                         .requestMatchers(HttpMethod.PUT, "/api/users/**").hasAuthority("ADHERANT")
@@ -51,7 +70,11 @@ public class SecurityConfig {
 
                         .anyRequest().authenticated()
                 )
-                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                // Shedding and per-IP limits before any token verification or user lookup,
+                // per-user limits once the principal is known
+                .addFilterBefore(rateLimitFilter, JwtAuthenticationFilter.class)
+                .addFilterAfter(userRateLimitFilter, JwtAuthenticationFilter.class);
         return http.build();
     }
 
@@ -66,7 +89,7 @@ public class SecurityConfig {
         ));
 
         // Allow all methods
-        configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS", "HEAD"));
+        configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS", "HEAD"));
 
         // Allow all headers
         configuration.setAllowedHeaders(Arrays.asList("*"));
@@ -0,0 +1,41 @@
+package com.itRoad.users_service.controllers;
+
+import com.itRoad.users_service.dto.BulkOperationResult;
+import com.itRoad.users_service.sharding.ShardRebalancer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/admin/shards")
+@ConditionalOnProperty(name = "sharding.enabled", havingValue = "true")
+public class ShardAdminController {
+
+    @Autowired
+    private ShardRebalancer shardRebalancer;
+
+    /**
+     * Moves users to the shard the ring assigns them, after shards were added to the configuration.
+     * Runs online, only accessible to users with 'Admin' role.
+     */
+    @PostMapping("/rebalance")
+    @PreAuthorize("hasAuthority('Admin')")
+    public ResponseEntity<BulkOperationResult> rebalance() {
+        return ResponseEntity.ok(new BulkOperationResult(shardRebalancer.rebalance()));
+    }
+
+    /**
+     * Copies the users of the unsharded primary database into the shards, keeping their ids.
+     * Run once after turning sharding on; running it again only imports users still missing.
+     * Only accessible to users with 'Admin' role.
+     */
+    @PostMapping("/import")
+    @PreAuthorize("hasAuthority('Admin')")
+    public ResponseEntity<BulkOperationResult> importFromPrimary() {
+        return ResponseEntity.ok(new BulkOperationResult(shardRebalancer.importFromPrimary()));
+    }
+}
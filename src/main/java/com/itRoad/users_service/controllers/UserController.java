@@ -1,7 +1,10 @@
 package com.itRoad.users_service.controllers;
 
+import com.itRoad.users_service.dto.BulkOperationResult;
+import com.itRoad.users_service.dto.BulkUserRequest;
 import com.itRoad.users_service.dto.CreateUserRequest;
 import com.itRoad.users_service.dto.UserDTO;
+import com.itRoad.users_service.dto.UserSummaryDTO;
 import com.itRoad.users_service.dto.UpdateUserRequest;
 import com.itRoad.users_service.models.User;
 import com.itRoad.users_service.services.UserService;
@@ -16,6 +19,7 @@ import org.springframework.web.bind.annotation.*;
 import jakarta.validation.Valid;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/users")
@@ -32,11 +36,21 @@ public class UserController {
      */
     @GetMapping
     @PreAuthorize("hasAuthority('Admin') or hasAuthority('Adherant')")
-    public ResponseEntity<List<UserDTO>> getAllUsers() {
-        List<UserDTO> users = userService.getAllUsers();
+    public ResponseEntity<List<UserSummaryDTO>> getAllUsers() {
+        List<UserSummaryDTO> users = userService.getAllUsers();
         return ResponseEntity.ok(users);
     }
 
+    /**
+     * Same list with only the requested fields, e.g. ?fields=id,username,name.
+     * Unknown fields are rejected with 400.
+     */
+    @GetMapping(params = "fields")
+    @PreAuthorize("hasAuthority('Admin') or hasAuthority('Adherant')")
+    public ResponseEntity<List<Map<String, Object>>> getAllUserFields(@RequestParam String fields) {
+        return ResponseEntity.ok(userService.getAllUserFields(fields));
+    }
+
     /**
      * Endpoint to get a user by ID.
      * Access allowed if user has 'Admin' or 'Adherant' role and:
@@ -67,15 +81,29 @@ public class UserController {
      */
     @GetMapping("/search")
     @PreAuthorize("hasAuthority('Admin') or hasAuthority('Adherant')")
-    public ResponseEntity<List<UserDTO>> getUsersByFilters(
+    public ResponseEntity<List<UserSummaryDTO>> getUsersByFilters(
             @RequestParam(defaultValue = "all") String name,
             @RequestParam(defaultValue = "all") String role,
             @RequestParam(defaultValue = "all") String status) {
 
-        List<UserDTO> users = userService.getUsersByFilters(name, role, status);
+        List<UserSummaryDTO> users = userService.getUsersByFilters(name, role, status);
         return ResponseEntity.ok(users);
     }
 
+    /**
+     * Search returning only the requested fields, e.g. ?role=Admin&fields=id,username.
+     * Unknown fields are rejected with 400.
+     */
+    @GetMapping(value = "/search", params = "fields")
+    @PreAuthorize("hasAuthority('Admin') or hasAuthority('Adherant')")
+    public ResponseEntity<List<Map<String, Object>>> getUserFieldsByFilters(
+            @RequestParam(defaultValue = "all") String name,
+            @RequestParam(defaultValue = "all") String role,
+            @RequestParam String fields) {
+
+        return ResponseEntity.ok(userService.getUserFieldsByFilters(name, role, fields));
+    }
+
     /**
      * Endpoint to create a new user.
      * Only accessible by users with 'Admin' role.
@@ -102,6 +130,20 @@ public class UserController {
         return ResponseEntity.ok(updatedUser);
     }
 
+    /**
+     * Endpoint to partially update a user by ID: only the provided fields are written.
+     * Same access rules as the PUT endpoint.
+     */
+    @PatchMapping("/{id}")
+    @PreAuthorize("hasAuthority('Admin') or (hasAuthority('Adherant') and #id == authentication.principal.id)")
+    public ResponseEntity<UserDTO> patchUser(
+            @PathVariable Long id,
+            @Valid @RequestBody UpdateUserRequest request) {
+
+        UserDTO updatedUser = userService.patchUser(id, request);
+        return ResponseEntity.ok(updatedUser);
+    }
+
     /**
      * Endpoint to delete a user by ID.
      * Only accessible to users with 'Admin' role.
@@ -113,6 +155,40 @@ public class UserController {
         return ResponseEntity.noContent().build();
     }
 
+    /**
+     * Bulk endpoint to set the status of many users, by id list or by /search filters.
+     * Only accessible to users with 'Admin' role.
+     */
+    @PutMapping("/bulk/status")
+    @PreAuthorize("hasAuthority('Admin')")
+    public ResponseEntity<BulkOperationResult> bulkUpdateStatus(@Valid @RequestBody BulkUserRequest request) {
+        return ResponseEntity.ok(userService.bulkUpdateStatus(request));
+    }
+
+    /**
+     * Bulk endpoint to set the role of many users, by id list or by /search filters.
+     * Only accessible to users with 'Admin' role.
+     */
+    @PutMapping("/bulk/role")
+    @PreAuthorize("hasAuthority('Admin')")
+    public ResponseEntity<BulkOperationResult> bulkUpdateRole(@Valid @RequestBody BulkUserRequest request) {
+        return ResponseEntity.ok(userService.bulkUpdateRole(request));
+    }
+
+    /**
+     * Bulk endpoint to delete many users, by id list or by /search filters.
+     * POST because DELETE requests with a body are dropped by some proxies.
+     * The calling admin is never deleted.
+     * Only accessible to users with 'Admin' role.
+     */
+    @PostMapping("/bulk/delete")
+    @PreAuthorize("hasAuthority('Admin')")
+    public ResponseEntity<BulkOperationResult> bulkDelete(@Valid @RequestBody BulkUserRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        User currentUser = (User) authentication.getPrincipal();
+        return ResponseEntity.ok(userService.bulkDelete(request, currentUser.getId()));
+    }
+
     /**
      * Endpoint to update the last login timestamp for a user.
      * Accessible to 'Admin' or the user himself.
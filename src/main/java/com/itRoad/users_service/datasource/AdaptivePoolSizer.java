@@ -0,0 +1,59 @@
+package com.itRoad.users_service.datasource;
+
+/**
+ * Picks the next maximum pool size from a {@link PoolSnapshot} (AIMD):
+ * - throttled by the pooler: halve, fewer connections is what lets it recover
+ * - callers waiting for connections: grow, at least to what Little's law needs
+ *   for the observed acquire rate and round trip time
+ * - pool mostly idle for several windows: shrink by one
+ */
+class AdaptivePoolSizer {
+
+    // A checkout costs at least a statement and a commit
+    private static final int ROUND_TRIPS_PER_CHECKOUT = 2;
+    private static final int CALM_WINDOWS_BEFORE_SHRINK = 5;
+
+    private final int minSize;
+    private final int maxSize;
+    private final double targetAcquireMillis;
+
+    private int calmWindows;
+
+    AdaptivePoolSizer(int minSize, int maxSize, double targetAcquireMillis) {
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.targetAcquireMillis = targetAcquireMillis;
+    }
+
+    int clamp(int size) {
+        return Math.max(minSize, Math.min(maxSize, size));
+    }
+
+    int nextSize(PoolSnapshot snapshot) {
+        int current = snapshot.maximumPoolSize();
+
+        if (snapshot.throttled()) {
+            calmWindows = 0;
+            return clamp(current / 2);
+        }
+
+        int needed = (int) Math.ceil(
+                snapshot.acquiresPerSecond() * snapshot.roundTripMillis() * ROUND_TRIPS_PER_CHECKOUT / 1000.0);
+
+        if (snapshot.awaiting() > 0 || snapshot.meanAcquireMillis() > targetAcquireMillis) {
+            calmWindows = 0;
+            int step = Math.max(1, Math.min(snapshot.awaiting(), (current + 3) / 4));
+            return clamp(Math.max(current + step, needed));
+        }
+
+        boolean calm = snapshot.idle() * 2 > current && snapshot.meanAcquireMillis() < targetAcquireMillis / 4;
+        if (calm && ++calmWindows >= CALM_WINDOWS_BEFORE_SHRINK) {
+            calmWindows = 0;
+            return clamp(Math.max(current - 1, needed));
+        }
+        if (!calm) {
+            calmWindows = 0;
+        }
+        return clamp(current);
+    }
+}
@@ -0,0 +1,32 @@
+package com.itRoad.users_service.datasource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Shows the last pool sample under /actuator/health (details are always shown).
+ * A throttled pool stays UP: the service degrades by shedding load, it is not down.
+ */
+@Component
+public class ConnectionPoolHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private ConnectionPoolMonitor connectionPoolMonitor;
+
+    @Override
+    public Health health() {
+        PoolSnapshot snapshot = connectionPoolMonitor.lastSnapshot();
+        return Health.up()
+                .withDetail("maximumPoolSize", snapshot.maximumPoolSize())
+                .withDetail("active", snapshot.active())
+                .withDetail("idle", snapshot.idle())
+                .withDetail("awaiting", snapshot.awaiting())
+                .withDetail("meanAcquireMillis", snapshot.meanAcquireMillis())
+                .withDetail("maxAcquireMillis", snapshot.maxAcquireMillis())
+                .withDetail("roundTripMillis", snapshot.roundTripMillis())
+                .withDetail("throttled", snapshot.throttled())
+                .build();
+    }
+}
@@ -0,0 +1,133 @@
+package com.itRoad.users_service.datasource;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.sql.SQLException;
+
+/**
+ * Samples the pool every window (acquire wait, active/idle counts, server round trip),
+ * publishes the figures as metrics and resizes the pool within bounds.
+ * The pool is reported throttled after 'throttleWindows' consecutive windows in which the
+ * acquire failure ratio or the round trip crossed its threshold, not on a single failure.
+ */
+public class ConnectionPoolMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionPoolMonitor.class);
+
+    private final InstrumentedDataSource dataSource;
+    private final AdaptivePoolSizer sizer;
+    private final boolean adaptive;
+    private final double throttleRoundTripMillis;
+    private final double throttleFailureRatio;
+    private final int throttleWindows;
+
+    private volatile PoolSnapshot lastSnapshot = PoolSnapshot.EMPTY;
+
+    private long lastSampleNanos = System.nanoTime();
+    private long lastAcquireCount;
+    private long lastAcquireNanos;
+    private long lastAcquireFailures;
+    private double lastRoundTripMillis;
+    private int throttledWindows;
+
+    public ConnectionPoolMonitor(InstrumentedDataSource dataSource, MeterRegistry meterRegistry, boolean adaptive,
+                                 int minSize, int maxSize, double targetAcquireMillis, double throttleRoundTripMillis,
+                                 double throttleFailureRatio, int throttleWindows) {
+        this.dataSource = dataSource;
+        this.sizer = new AdaptivePoolSizer(minSize, maxSize, targetAcquireMillis);
+        this.adaptive = adaptive;
+        this.throttleRoundTripMillis = throttleRoundTripMillis;
+        this.throttleFailureRatio = throttleFailureRatio;
+        this.throttleWindows = Math.max(1, throttleWindows);
+
+        if (adaptive) {
+            HikariConfigMXBean config = dataSource.getPool().getHikariConfigMXBean();
+            config.setMaximumPoolSize(sizer.clamp(config.getMaximumPoolSize()));
+            // Let the pool shrink below its maximum when traffic drops
+            config.setMinimumIdle(Math.min(minSize, config.getMaximumPoolSize()));
+        }
+
+        if (meterRegistry != null) {
+            meterRegistry.gauge("users.db.pool.acquire.mean", this, m -> m.lastSnapshot.meanAcquireMillis());
+            meterRegistry.gauge("users.db.pool.acquire.max", this, m -> m.lastSnapshot.maxAcquireMillis());
+            meterRegistry.gauge("users.db.pool.active", this, m -> m.lastSnapshot.active());
+            meterRegistry.gauge("users.db.pool.idle", this, m -> m.lastSnapshot.idle());
+            meterRegistry.gauge("users.db.pool.max-size", this, m -> m.lastSnapshot.maximumPoolSize());
+            meterRegistry.gauge("users.db.rtt", this, m -> m.lastSnapshot.roundTripMillis());
+        }
+    }
+
+    public PoolSnapshot lastSnapshot() {
+        return lastSnapshot;
+    }
+
+    public boolean isThrottled() {
+        return lastSnapshot.throttled();
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.adaptive.sample-interval-ms:1000}")
+    public synchronized PoolSnapshot sample() {
+        HikariPoolMXBean pool = dataSource.getPool().getHikariPoolMXBean();
+        if (pool == null) {
+            // Pool not started yet, nothing has asked for a connection
+            return lastSnapshot;
+        }
+
+        long now = System.nanoTime();
+        long count = dataSource.acquireCount();
+        long nanos = dataSource.acquireNanos();
+        long failures = dataSource.acquireFailures();
+        long deltaCount = count - lastAcquireCount;
+        long deltaFailures = failures - lastAcquireFailures;
+        double windowSeconds = Math.max(1e-3, (now - lastSampleNanos) / 1e9);
+
+        // Only probe with a spare connection, never compete with requests for one
+        if (pool.getIdleConnections() > 0) {
+            try {
+                lastRoundTripMillis = dataSource.probeRoundTripMillis(2);
+            } catch (SQLException e) {
+                deltaFailures++;
+            }
+        }
+
+        double failureRatio = deltaFailures > 0 ? (double) deltaFailures / (deltaCount + deltaFailures) : 0;
+        boolean throttleSignal = failureRatio >= throttleFailureRatio || lastRoundTripMillis > throttleRoundTripMillis;
+        throttledWindows = throttleSignal ? throttledWindows + 1 : 0;
+
+        int maximumPoolSize = dataSource.getPool().getHikariConfigMXBean().getMaximumPoolSize();
+        PoolSnapshot snapshot = new PoolSnapshot(
+                deltaCount > 0 ? (nanos - lastAcquireNanos) / 1e6 / deltaCount : 0,
+                dataSource.drainMaxAcquireNanos() / 1e6,
+                deltaCount / windowSeconds,
+                deltaFailures,
+                pool.getActiveConnections(),
+                pool.getIdleConnections(),
+                pool.getTotalConnections(),
+                pool.getThreadsAwaitingConnection(),
+                lastRoundTripMillis,
+                maximumPoolSize,
+                throttledWindows >= throttleWindows);
+
+        lastSampleNanos = now;
+        lastAcquireCount = count;
+        lastAcquireNanos = nanos;
+        lastAcquireFailures = failures;
+        lastSnapshot = snapshot;
+
+        if (adaptive) {
+            int next = sizer.nextSize(snapshot);
+            if (next != maximumPoolSize) {
+                logger.info("Resizing connection pool {} -> {} (acquire {} ms, rtt {} ms, waiting {}, throttled {})",
+                        maximumPoolSize, next, String.format("%.1f", snapshot.meanAcquireMillis()),
+                        String.format("%.1f", snapshot.roundTripMillis()), snapshot.awaiting(), snapshot.throttled());
+                dataSource.getPool().getHikariConfigMXBean().setMaximumPoolSize(next);
+            }
+        }
+        return snapshot;
+    }
+}
@@ -0,0 +1,109 @@
+package com.itRoad.users_service.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hikari pool wrapper that records how long callers wait for a connection.
+ * Can also add an artificial round trip delay to every statement, which is how
+ * the pool behaviour against a remote pooler is reproduced on a local database.
+ */
+public class InstrumentedDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    // Connection calls that cost a network round trip to the server
+    private static final Set<String> ROUND_TRIP_METHODS =
+            Set.of("prepareStatement", "prepareCall", "commit", "rollback", "isValid");
+
+    private final HikariDataSource pool;
+    private final long injectedLatencyMillis;
+
+    private final LongAdder acquireCount = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final LongAccumulator maxAcquireNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder acquireFailures = new LongAdder();
+
+    public InstrumentedDataSource(HikariDataSource pool, long injectedLatencyMillis) {
+        super(pool);
+        this.pool = pool;
+        this.injectedLatencyMillis = injectedLatencyMillis;
+    }
+
+    public HikariDataSource getPool() {
+        return pool;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        Connection connection;
+        try {
+            connection = pool.getConnection();
+        } catch (SQLException e) {
+            // Timeouts here mean the pool is exhausted or the pooler refuses new connections
+            acquireFailures.increment();
+            throw e;
+        }
+        long waited = System.nanoTime() - start;
+        acquireCount.increment();
+        acquireNanos.add(waited);
+        maxAcquireNanos.accumulate(waited);
+        return injectedLatencyMillis > 0 ? withLatency(connection) : connection;
+    }
+
+    /**
+     * Times one server round trip (isValid) on an idle pooled connection.
+     * Not counted as an acquire so probing does not skew the wait statistics.
+     */
+    double probeRoundTripMillis(int timeoutSeconds) throws SQLException {
+        try (Connection connection = injectedLatencyMillis > 0 ? withLatency(pool.getConnection()) : pool.getConnection()) {
+            long start = System.nanoTime();
+            connection.isValid(timeoutSeconds);
+            return (System.nanoTime() - start) / 1_000_000.0;
+        }
+    }
+
+    long acquireCount() {
+        return acquireCount.sum();
+    }
+
+    long acquireNanos() {
+        return acquireNanos.sum();
+    }
+
+    long acquireFailures() {
+        return acquireFailures.sum();
+    }
+
+    // Max wait since the previous call
+    long drainMaxAcquireNanos() {
+        return maxAcquireNanos.getThenReset();
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+
+    private Connection withLatency(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (ROUND_TRIP_METHODS.contains(method.getName())) {
+                        TimeUnit.MILLISECONDS.sleep(injectedLatencyMillis);
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
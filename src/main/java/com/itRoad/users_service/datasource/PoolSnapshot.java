@@ -0,0 +1,20 @@
+package com.itRoad.users_service.datasource;
+
+/**
+ * Connection pool state over one sampling window.
+ */
+public record PoolSnapshot(
+        double meanAcquireMillis,
+        double maxAcquireMillis,
+        double acquiresPerSecond,
+        long acquireFailures,
+        int active,
+        int idle,
+        int total,
+        int awaiting,
+        double roundTripMillis,
+        int maximumPoolSize,
+        boolean throttled) {
+
+    static final PoolSnapshot EMPTY = new PoolSnapshot(0, 0, 0, 0, 0, 0, 0, 0, 0, 0, false);
+}
@@ -0,0 +1,20 @@
+package com.itRoad.users_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkOperationResult {
+    private long affectedRows;
+    // Archived targets left untouched: their email or phone number is taken by a hot user
+    private List<Long> conflictingIds;
+
+    public BulkOperationResult(long affectedRows) {
+        this(affectedRows, List.of());
+    }
+}
@@ -0,0 +1,28 @@
+package com.itRoad.users_service.dto;
+
+import jakarta.validation.Valid;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Targets a set of users either by id list or by filter (exactly one of them).
+ * 'value' is the new status or role, unused for deletes.
+ * 'all' must be true for a filter without criteria, which matches every user.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkUserRequest {
+
+    private List<Long> ids;
+
+    @Valid
+    private UserFilter filter;
+
+    private String value;
+
+    private boolean all;
+}
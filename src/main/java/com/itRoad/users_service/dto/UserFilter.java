@@ -0,0 +1,17 @@
+package com.itRoad.users_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Same filters as the /search endpoint. A null or "all" value means no filter.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserFilter {
+    private String name;
+    private String role;
+    private String status;
+}
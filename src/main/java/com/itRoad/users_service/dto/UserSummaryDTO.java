@@ -0,0 +1,26 @@
+package com.itRoad.users_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * A user in list and search results: {@link UserDTO} without the profile (bio, address),
+ * which is only returned for a single user.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSummaryDTO {
+    private Long id;
+    private String name;
+    private String email;
+    private String username;
+    private String phoneNumber;
+    private String role;
+    private String status;
+    private LocalDate lastLogin;
+    private String avatar;
+}
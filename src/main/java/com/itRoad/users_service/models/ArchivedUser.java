@@ -0,0 +1,51 @@
+package com.itRoad.users_service.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Cold copy of a {@link User} moved out of the 'users' table by the archival job.
+ * Keeps the original id so lookups and restores are a plain key match.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "users_archive")
+public class ArchivedUser {
+
+    @Id
+    private Long id;
+
+    @Column(unique = true, nullable = false)
+    private String username;
+
+    @Column(nullable = false)
+    private String password;
+
+    @Column(nullable = false)
+    private String role;
+
+    private String name;
+
+    @Column(unique = true)
+    private String email;
+
+    private String status;
+
+    private LocalDate lastLogin;
+
+    private String address;
+
+    private String bio;
+
+    @Column(unique = true)
+    private String phoneNumber;
+
+    @Column(nullable = false)
+    private LocalDateTime archivedAt;
+}
@@ -0,0 +1,28 @@
+package com.itRoad.users_service.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Lease on a scheduled job shared by all instances: the job runs only on the
+ * instance holding a lease that has not expired.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "job_locks")
+public class JobLock {
+
+    @Id
+    private String name;
+
+    @Column(nullable = false)
+    private LocalDateTime lockedUntil;
+
+    @Column(nullable = false)
+    private String lockedBy;
+}
@@ -2,8 +2,11 @@ package com.itRoad.users_service.models;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.LazyGroup;
 import java.time.LocalDate;
 
 @Entity
@@ -35,8 +38,18 @@ public class User {
 
     private LocalDate lastLogin;
 
+    // Profile text is only read when the full profile is shown (bytecode enhanced, both load together),
+    // so authentication and list queries select the narrow row
+    @Basic(fetch = FetchType.LAZY)
+    @LazyGroup("profile")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private String address;
 
+    @Basic(fetch = FetchType.LAZY)
+    @LazyGroup("profile")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private String bio;
 
     @Column(unique = true)
@@ -0,0 +1,83 @@
+package com.itRoad.users_service.repositories;
+import com.itRoad.users_service.models.ArchivedUser;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ArchivedUserRepository extends JpaRepository<ArchivedUser, Long> {
+
+    Optional<ArchivedUser> findByUsername(String username);
+
+    boolean existsByEmail(String email);
+
+    boolean existsByUsername(String username);
+
+    boolean existsByPhoneNumber(String phoneNumber);
+
+    boolean existsByEmailAndIdNot(String email, Long id);
+
+    boolean existsByPhoneNumberAndIdNot(String phoneNumber, Long id);
+
+    // Ids of hot users to move to the archive (soft-deleted, or not logged in since 'cutoff'), after the 'afterId' cursor
+    @Query("SELECT u.id FROM User u WHERE u.id > :afterId AND (u.status = :deletedStatus OR u.lastLogin < :cutoff) " +
+            "ORDER BY u.id")
+    List<Long> findIdsToArchive(@Param("cutoff") LocalDate cutoff,
+                                @Param("deletedStatus") String deletedStatus,
+                                @Param("afterId") Long afterId,
+                                Pageable pageable);
+
+    // Same filters as UserRepository.findIdsByFilters, on the archived users
+    @Query("SELECT a.id FROM ArchivedUser a WHERE a.id > :afterId AND " +
+            "(:name IS NULL OR LOWER(a.name) LIKE LOWER(CONCAT('%', :name, '%'))) AND " +
+            "(:role IS NULL OR a.role = :role) AND " +
+            "(:status IS NULL OR a.status = :status) " +
+            "ORDER BY a.id")
+    List<Long> findIdsByFilters(@Param("name") String name,
+                                @Param("role") String role,
+                                @Param("status") String status,
+                                @Param("afterId") Long afterId,
+                                Pageable pageable);
+
+    /**
+     * Copies the given hot rows into the archive in one INSERT ... SELECT.
+     * Rows clashing with an archived row (id, username, email or phone number) are skipped,
+     * so one conflict never blocks the rest of the batch.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("INSERT INTO ArchivedUser (id, username, password, role, name, email, status, lastLogin, " +
+            "address, bio, phoneNumber, archivedAt) " +
+            "SELECT u.id, u.username, u.password, u.role, u.name, u.email, u.status, u.lastLogin, " +
+            "u.address, u.bio, u.phoneNumber, :archivedAt FROM User u WHERE u.id IN :ids " +
+            "AND NOT EXISTS (SELECT 1 FROM ArchivedUser a WHERE a.id = u.id OR a.username = u.username " +
+            "OR a.email = u.email OR a.phoneNumber = u.phoneNumber)")
+    int copyFromUsers(@Param("ids") List<Long> ids, @Param("archivedAt") LocalDateTime archivedAt);
+
+    // Deletes the hot rows that now have their archived copy
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM User u WHERE u.id IN :ids AND EXISTS (SELECT 1 FROM ArchivedUser a WHERE a.id = u.id)")
+    int deleteArchivedFromUsers(@Param("ids") List<Long> ids);
+
+    // Copies archived rows back into the hot table, keeping their ids
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("INSERT INTO User (id, username, password, role, name, email, status, lastLogin, " +
+            "address, bio, phoneNumber) " +
+            "SELECT a.id, a.username, a.password, a.role, a.name, a.email, a.status, a.lastLogin, " +
+            "a.address, a.bio, a.phoneNumber FROM ArchivedUser a WHERE a.id IN :ids")
+    int copyToUsers(@Param("ids") List<Long> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM ArchivedUser a WHERE a.id IN :ids")
+    int deleteArchivedByIds(@Param("ids") List<Long> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE User u SET u.status = :status, u.lastLogin = :lastLogin WHERE u.id = :id")
+    int reactivate(@Param("id") Long id, @Param("status") String status, @Param("lastLogin") LocalDate lastLogin);
+}
@@ -0,0 +1,23 @@
+package com.itRoad.users_service.repositories;
+import com.itRoad.users_service.models.JobLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+
+@Repository
+public interface JobLockRepository extends JpaRepository<JobLock, String> {
+
+    // Takes over an expired lease in one conditional UPDATE, 1 when acquired
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE JobLock l SET l.lockedUntil = :until, l.lockedBy = :owner " +
+            "WHERE l.name = :name AND l.lockedUntil <= :now")
+    int acquireExpired(@Param("name") String name, @Param("owner") String owner,
+                       @Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE JobLock l SET l.lockedUntil = :now WHERE l.name = :name AND l.lockedBy = :owner")
+    int release(@Param("name") String name, @Param("owner") String owner, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,118 @@
+package com.itRoad.users_service.repositories;
+import com.itRoad.users_service.models.User;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import java.sql.Date;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.StringJoiner;
+
+/**
+ * Plain JDBC access to the 'users' table, shared by the repository fragments
+ * and the sharded store.
+ */
+public final class UserJdbcSupport {
+
+    public static final String SELECT_COLUMNS =
+            "id, username, password, role, name, email, status, last_login, address, bio, phone_number";
+
+    // Everything but the profile (bio, address), for logins and lists
+    public static final String SUMMARY_COLUMNS =
+            "id, username, password, role, name, email, status, last_login, phone_number";
+
+    // Patchable properties and their columns, anything else is rejected
+    public static final Map<String, String> PATCHABLE_COLUMNS = Map.of(
+            "name", "name",
+            "email", "email",
+            "bio", "bio",
+            "address", "address",
+            "phoneNumber", "phone_number");
+
+    // Properties a client may select with ?fields=, and their columns (in UserDTO order)
+    public static final Map<String, String> PROJECTABLE_COLUMNS = projectableColumns();
+
+    // Maps SUMMARY_COLUMNS, bio and address stay null
+    public static final RowMapper<User> SUMMARY_ROW_MAPPER = (rs, rowNum) -> {
+        User user = new User();
+        user.setId(rs.getLong("id"));
+        user.setUsername(rs.getString("username"));
+        user.setPassword(rs.getString("password"));
+        user.setRole(rs.getString("role"));
+        user.setName(rs.getString("name"));
+        user.setEmail(rs.getString("email"));
+        user.setStatus(rs.getString("status"));
+        Date lastLogin = rs.getDate("last_login");
+        user.setLastLogin(lastLogin != null ? lastLogin.toLocalDate() : null);
+        user.setPhoneNumber(rs.getString("phone_number"));
+        return user;
+    };
+
+    public static final RowMapper<User> USER_ROW_MAPPER = (rs, rowNum) -> {
+        User user = SUMMARY_ROW_MAPPER.mapRow(rs, rowNum);
+        user.setAddress(rs.getString("address"));
+        user.setBio(rs.getString("bio"));
+        return user;
+    };
+
+    private UserJdbcSupport() {
+    }
+
+    /**
+     * UPDATE users SET <changed columns> WHERE id = :id, returning the updated row.
+     * With 'returning' the row comes back from the same statement (PostgreSQL), otherwise it is read after.
+     */
+    public static Optional<User> patch(NamedParameterJdbcTemplate jdbcTemplate, boolean returning,
+                                       Long id, Map<String, Object> changes) {
+        if (changes.isEmpty()) {
+            throw new IllegalArgumentException("Nothing to update");
+        }
+
+        StringJoiner assignments = new StringJoiner(", ", "UPDATE users SET ", " WHERE id = :id");
+        MapSqlParameterSource params = new MapSqlParameterSource("id", id);
+        changes.forEach((property, value) -> {
+            String column = PATCHABLE_COLUMNS.get(property);
+            if (column == null) {
+                throw new IllegalArgumentException("Field cannot be updated: " + property);
+            }
+            assignments.add(column + " = :" + property);
+            params.addValue(property, value);
+        });
+        String sql = assignments.toString();
+
+        if (returning) {
+            return jdbcTemplate.query(sql + " RETURNING " + SELECT_COLUMNS, params, USER_ROW_MAPPER)
+                    .stream().findFirst();
+        }
+        if (jdbcTemplate.update(sql, params) == 0) {
+            return Optional.empty();
+        }
+        return jdbcTemplate.query("SELECT " + SELECT_COLUMNS + " FROM users WHERE id = :id", params, USER_ROW_MAPPER)
+                .stream().findFirst();
+    }
+
+    private static Map<String, String> projectableColumns() {
+        Map<String, String> columns = new LinkedHashMap<>();
+        columns.put("id", "id");
+        columns.put("name", "name");
+        columns.put("email", "email");
+        columns.put("username", "username");
+        columns.put("address", "address");
+        columns.put("phoneNumber", "phone_number");
+        columns.put("bio", "bio");
+        columns.put("role", "role");
+        columns.put("status", "status");
+        columns.put("lastLogin", "last_login");
+        return Collections.unmodifiableMap(columns);
+    }
+
+    public static boolean isPostgres(NamedParameterJdbcTemplate jdbcTemplate) {
+        String product = jdbcTemplate.getJdbcTemplate().execute(
+                (ConnectionCallback<String>) connection ->
+                        connection.getMetaData().getDatabaseProductName());
+        return "PostgreSQL".equals(product);
+    }
+}
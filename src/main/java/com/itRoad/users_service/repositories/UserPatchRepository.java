@@ -0,0 +1,14 @@
+package com.itRoad.users_service.repositories;
+import com.itRoad.users_service.models.User;
+import java.util.Map;
+import java.util.Optional;
+
+public interface UserPatchRepository {
+
+    /**
+     * Writes only the given properties of one user in a single UPDATE statement and
+     * returns the row as stored after the update, or empty when no user has this id.
+     * Unique constraint violations surface as DataIntegrityViolationException.
+     */
+    Optional<User> patch(Long id, Map<String, Object> changes);
+}
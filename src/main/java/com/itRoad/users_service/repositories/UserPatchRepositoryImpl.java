@@ -0,0 +1,33 @@
+package com.itRoad.users_service.repositories;
+import com.itRoad.users_service.models.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Plain JDBC implementation of {@link UserPatchRepository}: no entity is loaded and only
+ * the changed columns are written. On PostgreSQL the updated row comes back from the
+ * same statement (UPDATE ... RETURNING), elsewhere it is read right after.
+ */
+class UserPatchRepositoryImpl implements UserPatchRepository {
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    private volatile Boolean supportsReturning;
+
+    @Override
+    public Optional<User> patch(Long id, Map<String, Object> changes) {
+        return UserJdbcSupport.patch(jdbcTemplate, supportsReturning(), id, changes);
+    }
+
+    private boolean supportsReturning() {
+        Boolean supported = supportsReturning;
+        if (supported == null) {
+            supported = UserJdbcSupport.isPostgres(jdbcTemplate);
+            supportsReturning = supported;
+        }
+        return supported;
+    }
+}
@@ -0,0 +1,13 @@
+package com.itRoad.users_service.repositories;
+import java.util.List;
+import java.util.Map;
+
+public interface UserProjectionRepository {
+
+    /**
+     * Selects only the given properties (keys of {@link UserJdbcSupport#PROJECTABLE_COLUMNS})
+     * of the users matching the /search filters, null meaning no filter.
+     * Each row maps the properties, in the requested order, to their values.
+     */
+    List<Map<String, Object>> findProjectedByFilters(List<String> fields, String name, String role);
+}
@@ -0,0 +1,59 @@
+package com.itRoad.users_service.repositories;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * JPQL Tuple implementation of {@link UserProjectionRepository}: the SELECT lists only the
+ * requested properties and no entity is loaded or tracked by the persistence context.
+ */
+class UserProjectionRepositoryImpl implements UserProjectionRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Map<String, Object>> findProjectedByFilters(List<String> fields, String name, String role) {
+        StringJoiner select = new StringJoiner(", ", "SELECT ", " FROM User u");
+        for (String field : fields) {
+            if (!UserJdbcSupport.PROJECTABLE_COLUMNS.containsKey(field)) {
+                throw new IllegalArgumentException("Unknown field: " + field);
+            }
+            select.add("u." + field);
+        }
+
+        // Only the filters actually set end up in the query
+        StringJoiner where = new StringJoiner(" AND ", " WHERE ", "").setEmptyValue("");
+        if (name != null) {
+            where.add("LOWER(u.name) LIKE LOWER(CONCAT('%', :name, '%'))");
+        }
+        if (role != null) {
+            where.add("u.role = :role");
+        }
+
+        TypedQuery<Tuple> query = entityManager.createQuery(select + where.toString(), Tuple.class);
+        if (name != null) {
+            query.setParameter("name", name);
+        }
+        if (role != null) {
+            query.setParameter("role", role);
+        }
+
+        List<Tuple> tuples = query.getResultList();
+        List<Map<String, Object>> rows = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int i = 0; i < fields.size(); i++) {
+                row.put(fields.get(i), tuple.get(i));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+}
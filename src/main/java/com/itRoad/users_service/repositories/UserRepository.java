@@ -1,14 +1,28 @@
 package com.itRoad.users_service.repositories;
 import com.itRoad.users_service.models.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.util.List;
 import java.util.Optional;
 
+// The fragments are listed again: Spring Data only picks up directly extended fragment interfaces
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserStore, UserPatchRepository, UserProjectionRepository {
+
+    // Declared by both parents, implemented by Spring Data's SimpleJpaRepository
+    @Override
+    Optional<User> findById(Long id);
+
+    @Override
+    List<User> findAll();
+
+    @Override
+    <S extends User> S save(S user);
 
     // Find a user by email, wrapped in an Optional to handle null results
     Optional<User> findByEmail(String email);
@@ -16,6 +30,11 @@ public interface UserRepository extends JpaRepository<User, Long> {
     // Find a user by username, wrapped in an Optional to handle null results
     Optional<User> findByUsername(String username);
 
+    // Full profile in one query: also selects the lazy profile columns (bio, address)
+    @EntityGraph(attributePaths = {"bio", "address"})
+    @Query("SELECT u FROM User u WHERE u.id = :id")
+    Optional<User> findWithProfileById(@Param("id") Long id);
+
     // Retrieve all users having the specified role
     List<User> findByRole(String role);
 
@@ -38,4 +57,35 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     // Check if a user exists with the given username
     boolean existsByUsername(String username);
+
+    // Check if a user exists with the given phone number
+    boolean existsByPhoneNumber(String phoneNumber);
+
+    /**
+     * Ids of the users matching the /search filters (status included), in id order.
+     * Used with 'afterId' as a keyset cursor to walk large result sets chunk by chunk.
+     */
+    @Query("SELECT u.id FROM User u WHERE u.id > :afterId AND " +
+            "(:name IS NULL OR LOWER(u.name) LIKE LOWER(CONCAT('%', :name, '%'))) AND " +
+            "(:role IS NULL OR u.role = :role) AND " +
+            "(:status IS NULL OR u.status = :status) " +
+            "ORDER BY u.id")
+    List<Long> findIdsByFilters(@Param("name") String name,
+                                @Param("role") String role,
+                                @Param("status") String status,
+                                @Param("afterId") Long afterId,
+                                Pageable pageable);
+
+    // Set-based writes: one statement, no entity loaded
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE User u SET u.status = :status WHERE u.id IN :ids")
+    int updateStatusByIds(@Param("ids") List<Long> ids, @Param("status") String status);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE User u SET u.role = :role WHERE u.id IN :ids")
+    int updateRoleByIds(@Param("ids") List<Long> ids, @Param("role") String role);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM User u WHERE u.id IN :ids")
+    int deleteByIds(@Param("ids") List<Long> ids);
 }
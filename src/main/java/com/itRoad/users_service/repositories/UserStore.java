@@ -0,0 +1,42 @@
+package com.itRoad.users_service.repositories;
+import com.itRoad.users_service.models.User;
+import org.springframework.data.domain.Pageable;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The user operations the services rely on. Implemented by the JPA {@link UserRepository}
+ * and, with sharding.enabled=true, by the sharded store, which then takes precedence.
+ */
+public interface UserStore extends UserPatchRepository, UserProjectionRepository {
+
+    Optional<User> findById(Long id);
+
+    // Also loads the lazy profile columns (bio, address)
+    Optional<User> findWithProfileById(Long id);
+
+    Optional<User> findByUsername(String username);
+
+    boolean existsByEmail(String email);
+
+    boolean existsByUsername(String username);
+
+    boolean existsByPhoneNumber(String phoneNumber);
+
+    // All users
+    List<User> findAll();
+
+    List<User> findByFilters(String name, String role);
+
+    // Ids matching the /search filters after 'afterId', in id order (keyset cursor)
+    List<Long> findIdsByFilters(String name, String role, String status, Long afterId, Pageable pageable);
+
+    // Inserts a user without id, updates one with an id
+    <S extends User> S save(S user);
+
+    int updateStatusByIds(List<Long> ids, String status);
+
+    int updateRoleByIds(List<Long> ids, String role);
+
+    int deleteByIds(List<Long> ids);
+}
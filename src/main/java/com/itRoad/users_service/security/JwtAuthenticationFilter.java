@@ -1,13 +1,15 @@
 package com.itRoad.users_service.security;
 
 import com.itRoad.users_service.models.User;
-import com.itRoad.users_service.repositories.UserRepository;
+import com.itRoad.users_service.services.UserService;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
-import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -16,17 +18,36 @@ import org.springframework.security.web.authentication.WebAuthenticationDetailsS
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    // Error bodies are constant, encode them once
+    private static final byte[] INVALID_TOKEN_BODY = "{\"error\": \"Invalid token\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] EXPIRED_TOKEN_BODY = "{\"error\": \"Token expired\"}".getBytes(StandardCharsets.UTF_8);
+
+    private static final WebAuthenticationDetailsSource DETAILS_SOURCE = new WebAuthenticationDetailsSource();
+
+    // At most one warning per second for rejected tokens, however many arrive
+    private final RateLimitedLogger rejectionLogger =
+            new RateLimitedLogger(LoggerFactory.getLogger(JwtAuthenticationFilter.class), 1, TimeUnit.SECONDS);
+
+    // Separate budget: a database outage fails every request, and a token flood must not hide it
+    private final RateLimitedLogger errorLogger =
+            new RateLimitedLogger(LoggerFactory.getLogger(JwtAuthenticationFilter.class), 1, TimeUnit.SECONDS);
+
     @Autowired
     private JwtService jwtService;
 
     @Autowired
-    private UserRepository userRepository;
+    private UserService userService;
+
+    @Autowired
+    private RejectedTokenCache rejectedTokenCache;
 
     @Override
     protected void doFilterInternal(
@@ -45,16 +66,29 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         jwt = authHeader.substring(7);
 
+        // Cheap rejections first: garbage that cannot be a JWT, then tokens we rejected recently
+        if (!JwtService.isStructurallyValid(jwt)) {
+            rejectionLogger.warn("Invalid JWT token", "malformed");
+            reject(response, INVALID_TOKEN_BODY);
+            return;
+        }
+        RejectedTokenCache.Reason rejected = rejectedTokenCache.lookup(jwt);
+        if (rejected != null) {
+            reject(response, rejected == RejectedTokenCache.Reason.EXPIRED ? EXPIRED_TOKEN_BODY : INVALID_TOKEN_BODY);
+            return;
+        }
+
         try {
-            username = jwtService.extractUsername(jwt);
+            Claims claims = jwtService.parseClaims(jwt);
+            username = claims.getSubject();
 
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                Optional<User> userOptional = userRepository.findByUsername(username);
+                Optional<User> userOptional = userService.loadUserForAuthentication(username);
 
                 if (userOptional.isPresent()) {
                     User user = userOptional.get();
 
-                    if (jwtService.isTokenValid(jwt, username)) {
+                    if (jwtService.isTokenValid(claims, username)) {
                         List<SimpleGrantedAuthority> authorities = List.of(
                                 new SimpleGrantedAuthority( user.getRole())
                         );
@@ -65,31 +99,35 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                                         null,
                                         authorities
                                 );
-                        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                        authToken.setDetails(DETAILS_SOURCE.buildDetails(request));
                         SecurityContextHolder.getContext().setAuthentication(authToken);
                     }
                 }
             }
-        } catch (MalformedJwtException e) {
-            logger.error("Invalid JWT token: " + e.getMessage());
-            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-            response.setContentType("application/json");
-            response.getWriter().write("{\"error\": \"Invalid token\"}");
-            return;
         } catch (ExpiredJwtException e) {
-            logger.error("JWT token is expired: " + e.getMessage());
-            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-            response.setContentType("application/json");
-            response.getWriter().write("{\"error\": \"Token expired\"}");
+            rejectedTokenCache.reject(jwt, RejectedTokenCache.Reason.EXPIRED);
+            rejectionLogger.warn("JWT token is expired", e.getMessage());
+            reject(response, EXPIRED_TOKEN_BODY);
+            return;
+        } catch (JwtException | IllegalArgumentException e) {
+            rejectedTokenCache.reject(jwt, RejectedTokenCache.Reason.INVALID);
+            rejectionLogger.warn("Invalid JWT token", e.getMessage());
+            reject(response, INVALID_TOKEN_BODY);
             return;
         } catch (Exception e) {
-            logger.error("JWT Authentication error: " + e.getMessage());
-            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-            response.setContentType("application/json");
-            response.getWriter().write("{\"error\": \"Invalid token\"}");
+            // Not the token's fault (e.g. database error): answer 401 but do not remember the token
+            errorLogger.error("JWT authentication error", e);
+            reject(response, INVALID_TOKEN_BODY);
             return;
         }
 
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    private static void reject(HttpServletResponse response, byte[] body) throws IOException {
+        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+        response.setContentType("application/json");
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+}
@@ -2,6 +2,7 @@ package com.itRoad.users_service.security;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -27,33 +28,78 @@ public class JwtService {
     @Value("${jwt.expiration:86400}")
     private int jwtExpiration;
 
-    private Key getSigningKey() {
+    // Tokens longer than this are rejected before any decoding
+    private static final int MAX_TOKEN_LENGTH = 8192;
+
+    // The key and the parser are immutable and thread-safe, build them once
+    private Key signingKey;
+    private JwtParser parser;
+
+    @PostConstruct
+    void init() {
         logger.debug("Creating signing key with secret length: {}", secretKey.length());
-        return Keys.hmacShaKeyFor(secretKey.getBytes());
+        signingKey = Keys.hmacShaKeyFor(secretKey.getBytes());
+        parser = Jwts.parser()
+                .verifyWith((SecretKey) signingKey)
+                .build();
+    }
+
+    /**
+     * Cheap structural check run before any parsing or crypto: a signed JWT is three
+     * non-empty base64url segments and its header is a JSON object (so starts with "eyJ").
+     */
+    public static boolean isStructurallyValid(String token) {
+        int length = token.length();
+        if (length < 16 || length > MAX_TOKEN_LENGTH || !token.startsWith("eyJ")) {
+            return false;
+        }
+        int dots = 0;
+        int segmentLength = 0;
+        for (int i = 0; i < length; i++) {
+            char c = token.charAt(i);
+            if (c == '.') {
+                if (segmentLength == 0 || ++dots > 2) {
+                    return false;
+                }
+                segmentLength = 0;
+            } else if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-' || c == '_') {
+                segmentLength++;
+            } else {
+                return false;
+            }
+        }
+        return dots == 2 && segmentLength > 0;
+    }
+
+    /**
+     * Verifies the signature and expiry and returns the claims, in a single parse.
+     * Throws ExpiredJwtException for expired tokens and JwtException for any other invalid token.
+     */
+    public Claims parseClaims(String token) {
+        return extractAllClaims(token);
+    }
+
+    /**
+     * Claims come from {@link #parseClaims}, so the signature and expiry are already verified;
+     * tokens without an expiry are not accepted.
+     */
+    public boolean isTokenValid(Claims claims, String username) {
+        Date expiration = claims.getExpiration();
+        return username.equals(claims.getSubject()) && expiration != null && expiration.after(new Date());
     }
 
     public String extractUsername(String token) {
         logger.debug("Extracting username from token");
-        try {
-            String username = extractClaim(token, Claims::getSubject);
-            logger.debug("Username extracted: {}", username);
-            return username;
-        } catch (Exception e) {
-            logger.error("Error extracting username: {}", e.getMessage());
-            throw e;
-        }
+        String username = extractClaim(token, Claims::getSubject);
+        logger.debug("Username extracted: {}", username);
+        return username;
     }
 
     public String extractRole(String token) {
         logger.debug("Extracting role from token");
-        try {
-            String role = extractClaim(token, claims -> claims.get("role", String.class));
-            logger.debug("Role extracted: {}", role);
-            return role;
-        } catch (Exception e) {
-            logger.error("Error extracting role: {}", e.getMessage());
-            throw e;
-        }
+        String role = extractClaim(token, claims -> claims.get("role", String.class));
+        logger.debug("Role extracted: {}", role);
+        return role;
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
@@ -71,7 +117,7 @@ public class JwtService {
             logger.debug("Username match: {}, Token not expired: {}", usernameMatch, notExpired);
             return usernameMatch && notExpired;
         } catch (Exception e) {
-            logger.error("Token validation error: {}", e.getMessage());
+            logger.debug("Token validation error: {}", e.getMessage());
             return false;
         }
     }
@@ -79,10 +125,7 @@ public class JwtService {
     public boolean validateJwtToken(String authToken) {
         logger.debug("Validating JWT token");
         try {
-            Jwts.parser()
-                    .verifyWith((SecretKey) getSigningKey())
-                    .build()
-                    .parseSignedClaims(authToken);
+            parser.parseSignedClaims(authToken);
             logger.debug("Token validation successful");
             return true;
         } catch (MalformedJwtException e) {
@@ -99,6 +142,22 @@ public class JwtService {
         return false;
     }
 
+    /**
+     * Signs a short-lived token. Real tokens are issued by the sign-in service,
+     * this one is only used for the startup warm-up traffic sent to this instance,
+     * always for a subject that no account can have.
+     */
+    public String generateToken(String username, String role, long validityMillis) {
+        long now = System.currentTimeMillis();
+        return Jwts.builder()
+                .subject(username)
+                .claim("role", role)
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + validityMillis))
+                .signWith(signingKey)
+                .compact();
+    }
+
     private boolean isTokenExpired(String token) {
         try {
             Date expiration = extractExpiration(token);
@@ -106,7 +165,7 @@ public class JwtService {
             logger.debug("Token expiration: {}, Current time: {}", expiration, now);
             return expiration.before(now);
         } catch (Exception e) {
-            logger.error("Error checking token expiration: {}", e.getMessage());
+            logger.debug("Error checking token expiration: {}", e.getMessage());
             return true;
         }
     }
@@ -115,19 +174,9 @@ public class JwtService {
         return extractClaim(token, Claims::getExpiration);
     }
 
+    // Failures are not logged here, the caller decides (JwtAuthenticationFilter rate-limits them)
     private Claims extractAllClaims(String token) {
         logger.debug("Extracting all claims from token");
-        try {
-            Claims claims = Jwts.parser()
-                    .verifyWith((SecretKey) getSigningKey())
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
-            logger.debug("Claims extracted successfully");
-            return claims;
-        } catch (Exception e) {
-            logger.error("Error parsing token: {} - {}", e.getClass().getSimpleName(), e.getMessage());
-            throw e;
-        }
+        return parser.parseSignedClaims(token).getPayload();
     }
 }
\ No newline at end of file
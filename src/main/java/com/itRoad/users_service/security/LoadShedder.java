@@ -0,0 +1,90 @@
+package com.itRoad.users_service.security;
+
+import com.itRoad.users_service.datasource.ConnectionPoolMonitor;
+import com.itRoad.users_service.datasource.PoolSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sheds a fraction of the requests when they spend too long waiting for a database
+ * connection, or when the pooler is throttling us while requests queue for connections.
+ * The fraction grows by 'step' per overloaded window up to 'max-fraction' (some requests
+ * always get through, so the pool keeps being measured) and halves per healthy window.
+ * The sampling runs on the scheduler so the request path only reads a volatile field.
+ */
+@Component
+public class LoadShedder {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadShedder.class);
+
+    // Below this the fraction drops to 0, shedding is over
+    private static final double MIN_FRACTION = 0.05;
+
+    @Autowired
+    private ConnectionPoolMonitor connectionPoolMonitor;
+
+    @Value("${load-shedding.enabled:true}")
+    private boolean enabled;
+
+    // Mean acquire wait (ms) over one pool sampling window above which we start shedding
+    @Value("${load-shedding.acquire-wait-threshold-ms:200}")
+    private double thresholdMs;
+
+    @Value("${load-shedding.step:0.2}")
+    private double step;
+
+    @Value("${load-shedding.max-fraction:0.9}")
+    private double maxFraction;
+
+    private volatile double fraction;
+
+    public double getFraction() {
+        return fraction;
+    }
+
+    // Called once per request: true for about 'fraction' of them
+    public boolean shouldShed() {
+        double current = fraction;
+        return current > 0 && ThreadLocalRandom.current().nextDouble() < current;
+    }
+
+    @Scheduled(fixedDelayString = "${load-shedding.sample-interval-ms:1000}")
+    public void sample() {
+        if (!enabled) {
+            fraction = 0;
+            return;
+        }
+
+        PoolSnapshot snapshot = connectionPoolMonitor.lastSnapshot();
+        // A window without acquires has no wait to judge, only the queue and the pooler tell
+        boolean measured = snapshot.acquiresPerSecond() > 0;
+        double meanWaitMs = snapshot.meanAcquireMillis();
+        boolean queued = snapshot.awaiting() > 0;
+
+        boolean overloaded = measured && meanWaitMs > thresholdMs || queued && snapshot.throttled();
+        // Hysteresis: only back off once the wait is well below the threshold and nothing queues
+        boolean healthy = !queued && (!measured || meanWaitMs <= thresholdMs / 2);
+
+        double current = fraction;
+        double next = current;
+        if (overloaded) {
+            next = Math.min(maxFraction, current + step);
+        } else if (healthy && current > 0) {
+            next = current / 2 < MIN_FRACTION ? 0 : current / 2;
+        }
+        if (next != current) {
+            if (current == 0 || next == 0) {
+                logger.warn("Load shedding {} (mean connection acquire wait: {} ms, waiting: {}, pooler throttling: {})",
+                        next > 0 ? "enabled" : "disabled", String.format("%.1f", meanWaitMs), snapshot.awaiting(),
+                        snapshot.throttled());
+            }
+            fraction = next;
+        }
+    }
+}
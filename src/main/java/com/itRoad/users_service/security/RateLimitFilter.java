@@ -0,0 +1,106 @@
+package com.itRoad.users_service.security;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-client rate limiting placed before {@link JwtAuthenticationFilter}, so rejected
+ * requests cost neither a token verification nor a database query:
+ * <ul>
+ *     <li>the share of requests {@link LoadShedder} is shedding is rejected with 503,</li>
+ *     <li>requests without a token use the strict anonymous bucket of their IP,</li>
+ *     <li>requests with a token use a larger per-IP bucket, which caps invalid-token floods.</li>
+ * </ul>
+ * Authenticated requests are then also limited per user by {@link UserRateLimitFilter}.
+ * Behind a proxy the client IP comes from X-Forwarded-For (server.forward-headers-strategy).
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private LoadShedder loadShedder;
+
+    @Value("${rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${rate-limit.anonymous.capacity:20}")
+    private int anonymousCapacity;
+
+    @Value("${rate-limit.anonymous.refill-per-second:5}")
+    private double anonymousRefillPerSecond;
+
+    @Value("${rate-limit.ip.capacity:200}")
+    private int ipCapacity;
+
+    @Value("${rate-limit.ip.refill-per-second:100}")
+    private double ipRefillPerSecond;
+
+    // Above this many tracked clients per bucket kind, full buckets are evicted
+    @Value("${rate-limit.max-tracked-clients:100000}")
+    private int maxTrackedClients;
+
+    private TokenBucketRegistry anonymousBuckets;
+    private TokenBucketRegistry ipBuckets;
+
+    @PostConstruct
+    void init() {
+        anonymousBuckets = new TokenBucketRegistry(anonymousCapacity, anonymousRefillPerSecond, maxTrackedClients);
+        ipBuckets = new TokenBucketRegistry(ipCapacity, ipRefillPerSecond, maxTrackedClients);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || isExempt(request);
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain) throws ServletException, IOException {
+
+        if (loadShedder.shouldShed()) {
+            reject(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, TimeUnit.SECONDS.toNanos(1),
+                    "{\"error\": \"Service overloaded, retry later\"}");
+            return;
+        }
+
+        String authHeader = request.getHeader("Authorization");
+        TokenBucketRegistry buckets = authHeader != null && authHeader.startsWith("Bearer ")
+                ? ipBuckets : anonymousBuckets;
+        long waitNanos = buckets.tryAcquire(request.getRemoteAddr());
+        if (waitNanos > 0) {
+            reject(response, 429, waitNanos, "{\"error\": \"Too many requests\"}");
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    // Health probes and the platform's checks are never limited
+    static boolean isExempt(HttpServletRequest request) {
+        if ("OPTIONS".equals(request.getMethod())) {
+            return true;
+        }
+        String path = request.getServletPath();
+        return path.equals("/") || path.equals("/health") || path.startsWith("/actuator");
+    }
+
+    static void reject(HttpServletResponse response, int status, long waitNanos, String body) throws IOException {
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+        response.setStatus(status);
+        response.setHeader("Retry-After", Long.toString(retryAfterSeconds));
+        response.setContentType("application/json");
+        response.getWriter().write(body);
+    }
+}
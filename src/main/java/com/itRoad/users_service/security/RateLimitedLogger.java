@@ -0,0 +1,59 @@
+package com.itRoad.users_service.security;
+
+import org.slf4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Logs at most one message per interval and counts the ones it drops,
+ * so a flood of bad requests cannot turn into a flood of log lines.
+ */
+final class RateLimitedLogger {
+
+    private final Logger logger;
+    private final long intervalNanos;
+    private final AtomicLong nextLogAt = new AtomicLong(System.nanoTime());
+    private final LongAdder suppressed = new LongAdder();
+
+    RateLimitedLogger(Logger logger, long interval, TimeUnit unit) {
+        this.logger = logger;
+        this.intervalNanos = unit.toNanos(interval);
+    }
+
+    void warn(String message, String detail) {
+        if (!tryLog()) {
+            return;
+        }
+        long dropped = suppressed.sumThenReset();
+        if (dropped > 0) {
+            logger.warn("{}: {} ({} similar messages suppressed)", message, detail, dropped);
+        } else {
+            logger.warn("{}: {}", message, detail);
+        }
+    }
+
+    // ERROR with the stack trace of 'error', under the same per-interval budget
+    void error(String message, Throwable error) {
+        if (!tryLog()) {
+            return;
+        }
+        long dropped = suppressed.sumThenReset();
+        if (dropped > 0) {
+            logger.error("{} ({} similar messages suppressed)", message, dropped, error);
+        } else {
+            logger.error(message, error);
+        }
+    }
+
+    private boolean tryLog() {
+        long now = System.nanoTime();
+        long next = nextLogAt.get();
+        if (now - next < 0 || !nextLogAt.compareAndSet(next, now + intervalNanos)) {
+            suppressed.increment();
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,89 @@
+package com.itRoad.users_service.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded negative cache of recently rejected tokens, keyed by a SHA-256 digest of the token.
+ * A replayed bad token is then answered without parsing or verifying it again.
+ */
+@Component
+public class RejectedTokenCache {
+
+    public enum Reason { INVALID, EXPIRED }
+
+    private record Digest(long high, long low) {
+    }
+
+    private record Entry(Reason reason, long expiresAt) {
+    }
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    @Value("${jwt.rejected-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${jwt.rejected-cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${jwt.rejected-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private final ConcurrentHashMap<Digest, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @return why this token was rejected recently, or null if it was not
+     */
+    public Reason lookup(String token) {
+        if (!enabled) {
+            return null;
+        }
+        Digest digest = digest(token);
+        Entry entry = entries.get(digest);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.expiresAt() > 0) {
+            entries.remove(digest, entry);
+            return null;
+        }
+        return entry.reason();
+    }
+
+    public void reject(String token, Reason reason) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (entries.size() >= maxSize) {
+            entries.values().removeIf(entry -> now - entry.expiresAt() > 0);
+            // Still full: a flood of distinct tokens, start over rather than grow
+            if (entries.size() >= maxSize) {
+                entries.clear();
+            }
+        }
+        entries.put(digest(token), new Entry(reason, now + TimeUnit.SECONDS.toNanos(ttlSeconds)));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static Digest digest(String token) {
+        ByteBuffer hash = ByteBuffer.wrap(SHA_256.get().digest(token.getBytes(StandardCharsets.US_ASCII)));
+        return new Digest(hash.getLong(), hash.getLong());
+    }
+}
@@ -0,0 +1,48 @@
+package com.itRoad.users_service.security;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket implemented as a generic cell rate algorithm (GCRA).
+ * The whole bucket state is a single "theoretical arrival time", so acquiring
+ * a token is one CAS and never allocates.
+ */
+final class TokenBucket {
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final AtomicLong theoreticalArrival = new AtomicLong();
+
+    TokenBucket(int capacity, double refillPerSecond) {
+        this.emissionIntervalNanos = (long) (1_000_000_000L / refillPerSecond);
+        this.burstToleranceNanos = emissionIntervalNanos * (Math.max(capacity, 1) - 1);
+    }
+
+    /**
+     * Tries to take one token.
+     *
+     * @param now monotonic time in nanoseconds, never negative
+     * @return 0 if the token was granted, otherwise the nanoseconds to wait before retrying
+     */
+    long tryAcquire(long now) {
+        for (;;) {
+            long tat = theoreticalArrival.get();
+            long base = Math.max(tat, now);
+            long excess = base - now - burstToleranceNanos;
+            if (excess > 0) {
+                return excess;
+            }
+            if (theoreticalArrival.compareAndSet(tat, base + emissionIntervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * A bucket that has fully refilled behaves exactly like a new one,
+     * so it can be dropped from the registry without losing any state.
+     */
+    boolean isFull(long now) {
+        return theoreticalArrival.get() <= now;
+    }
+}
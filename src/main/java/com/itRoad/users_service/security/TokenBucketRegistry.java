@@ -0,0 +1,54 @@
+package com.itRoad.users_service.security;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One {@link TokenBucket} per client key, all with the same capacity and refill rate.
+ * Above 'maxTracked' keys, buckets that have fully refilled are evicted (they carry no state).
+ */
+final class TokenBucketRegistry {
+
+    private final int capacity;
+    private final double refillPerSecond;
+    private final int maxTracked;
+    private final long origin = System.nanoTime();
+    private final ConcurrentHashMap<Object, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    TokenBucketRegistry(int capacity, double refillPerSecond, int maxTracked) {
+        this.capacity = capacity;
+        this.refillPerSecond = refillPerSecond;
+        this.maxTracked = maxTracked;
+    }
+
+    /**
+     * @return 0 if the client may proceed, otherwise the nanoseconds to wait before retrying
+     */
+    long tryAcquire(Object key) {
+        return tryAcquire(key, System.nanoTime() - origin);
+    }
+
+    long tryAcquire(Object key, long now) {
+        return bucketFor(key, now).tryAcquire(now);
+    }
+
+    int size() {
+        return buckets.size();
+    }
+
+    private TokenBucket bucketFor(Object key, long now) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxTracked && sweeping.compareAndSet(false, true)) {
+            try {
+                buckets.values().removeIf(b -> b.isFull(now));
+            } finally {
+                sweeping.set(false);
+            }
+        }
+        return buckets.computeIfAbsent(key, k -> new TokenBucket(capacity, refillPerSecond));
+    }
+}
@@ -0,0 +1,79 @@
+package com.itRoad.users_service.security;
+
+import com.itRoad.users_service.models.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Per-user rate limiting, placed right after {@link JwtAuthenticationFilter}: reads and
+ * writes of an authenticated user have separate buckets keyed by user id.
+ * Unauthenticated requests were already limited per IP by {@link RateLimitFilter}.
+ */
+@Component
+public class UserRateLimitFilter extends OncePerRequestFilter {
+
+    @Value("${rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${rate-limit.read.capacity:100}")
+    private int readCapacity;
+
+    @Value("${rate-limit.read.refill-per-second:50}")
+    private double readRefillPerSecond;
+
+    @Value("${rate-limit.write.capacity:20}")
+    private int writeCapacity;
+
+    @Value("${rate-limit.write.refill-per-second:5}")
+    private double writeRefillPerSecond;
+
+    @Value("${rate-limit.max-tracked-clients:100000}")
+    private int maxTrackedClients;
+
+    private TokenBucketRegistry readBuckets;
+    private TokenBucketRegistry writeBuckets;
+
+    @PostConstruct
+    void init() {
+        readBuckets = new TokenBucketRegistry(readCapacity, readRefillPerSecond, maxTrackedClients);
+        writeBuckets = new TokenBucketRegistry(writeCapacity, writeRefillPerSecond, maxTrackedClients);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || RateLimitFilter.isExempt(request);
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain) throws ServletException, IOException {
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof User user) {
+            TokenBucketRegistry buckets = isRead(request.getMethod()) ? readBuckets : writeBuckets;
+            long waitNanos = buckets.tryAcquire(user.getId());
+            if (waitNanos > 0) {
+                RateLimitFilter.reject(response, 429, waitNanos, "{\"error\": \"Too many requests\"}");
+                return;
+            }
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private static boolean isRead(String method) {
+        return "GET".equals(method) || "HEAD".equals(method);
+    }
+}
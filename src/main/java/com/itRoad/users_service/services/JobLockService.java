@@ -0,0 +1,63 @@
+package com.itRoad.users_service.services;
+
+import com.itRoad.users_service.models.JobLock;
+import com.itRoad.users_service.repositories.JobLockRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Database leases (table 'job_locks') so a scheduled job runs on one instance at a time.
+ * A lease expires on its own if its holder dies before releasing it.
+ */
+@Service
+public class JobLockService {
+
+    // Identifies this instance as the lease holder
+    private final String owner = UUID.randomUUID().toString();
+
+    @Autowired
+    private JobLockRepository jobLockRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Takes the lease 'name' for 'lease' unless another instance holds an unexpired one.
+     * The first acquisition inserts the row, a concurrent insert loses on the primary key.
+     */
+    public boolean tryAcquire(String name, Duration lease) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime until = now.plus(lease);
+
+        Boolean acquired = transaction.execute(status -> jobLockRepository.acquireExpired(name, owner, now, until) == 1
+                || !jobLockRepository.existsById(name) && insert(name, until));
+        return Boolean.TRUE.equals(acquired);
+    }
+
+    public void release(String name) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transaction.executeWithoutResult(status -> jobLockRepository.release(name, owner, LocalDateTime.now()));
+    }
+
+    private boolean insert(String name, LocalDateTime until) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            transaction.executeWithoutResult(status -> jobLockRepository.saveAndFlush(new JobLock(name, until, owner)));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.itRoad.users_service.services;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls for the same key: the first caller runs the loader,
+ * every caller that arrives while it is in flight waits for and shares its result
+ * (or its exception). Nothing is cached once the call completes.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            return await(existing);
+        }
+
+        try {
+            V value = loader.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            // Only remove our own flight, a write may already have replaced it
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * Detaches the in-flight call for this key so later callers start a fresh load.
+     * Callers already waiting still receive the detached result.
+     */
+    public void forget(K key) {
+        inFlight.remove(key);
+    }
+
+    public void forgetAll() {
+        inFlight.clear();
+    }
+
+    private static <V> V await(CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
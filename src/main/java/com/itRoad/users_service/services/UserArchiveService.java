@@ -0,0 +1,234 @@
+package com.itRoad.users_service.services;
+
+import com.itRoad.users_service.Exceptions.EmailAlreadyExistsException;
+import com.itRoad.users_service.Exceptions.PhoneNumberAlreadyExistsException;
+import com.itRoad.users_service.models.ArchivedUser;
+import com.itRoad.users_service.models.User;
+import com.itRoad.users_service.repositories.ArchivedUserRepository;
+import com.itRoad.users_service.repositories.UserStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Keeps the 'users' table small by moving inactive and soft-deleted accounts
+ * to 'users_archive', and brings an archived account back when its owner logs in.
+ * With 'archive.enabled=false' nothing touches 'users_archive', which then need not exist:
+ * lookups find nothing and writes change nothing.
+ */
+@Service
+public class UserArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserArchiveService.class);
+
+    public static final String DELETED_STATUS = "Deleted";
+
+    private static final String LOCK_NAME = "archive";
+
+    @Autowired
+    private UserStore userStore;
+
+    @Autowired
+    private ArchivedUserRepository archivedUserRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JobLockService jobLockService;
+
+    @Value("${archive.enabled:false}")
+    private boolean enabled;
+
+    // The archive table is not sharded: with sharding on, users stay in the shards and nothing
+    // is restored (the shard import moves archived users into the shards)
+    @Value("${sharding.enabled:false}")
+    private boolean sharded;
+
+    @Value("${archive.inactive-days:365}")
+    private int inactiveDays;
+
+    @Value("${archive.batch-size:500}")
+    private int batchSize;
+
+    // Lease taken for a run, longer than a run takes so it does not expire while running
+    @Value("${archive.lock-minutes:30}")
+    private int lockMinutes;
+
+    /**
+     * Moves users in batches, one short transaction per batch (INSERT ... SELECT then DELETE),
+     * walking the candidates with an id cursor. Users clashing with an archived row stay in
+     * the hot table and are skipped. Runs on the instance holding the 'archive' job lease.
+     * Returns the number of archived users.
+     */
+    @Scheduled(cron = "${archive.cron:0 30 3 * * *}")
+    public long archiveInactiveUsers() {
+        if (!enabled || sharded) {
+            return 0;
+        }
+        if (!jobLockService.tryAcquire(LOCK_NAME, Duration.ofMinutes(lockMinutes))) {
+            logger.debug("Archival skipped, another instance holds the lock");
+            return 0;
+        }
+
+        LocalDate cutoff = LocalDate.now().minusDays(inactiveDays);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        long archived = 0;
+        long skipped = 0;
+        try {
+            Long afterId = Long.MIN_VALUE;
+            List<Long> ids;
+            do {
+                ids = archivedUserRepository.findIdsToArchive(cutoff, DELETED_STATUS, afterId,
+                        PageRequest.of(0, batchSize));
+                if (ids.isEmpty()) {
+                    break;
+                }
+                List<Long> batch = ids;
+                Integer count = transaction.execute(status -> {
+                    archivedUserRepository.copyFromUsers(batch, LocalDateTime.now());
+                    return archivedUserRepository.deleteArchivedFromUsers(batch);
+                });
+                int moved = count == null ? 0 : count;
+                archived += moved;
+                skipped += batch.size() - moved;
+                afterId = batch.get(batch.size() - 1);
+            } while (ids.size() == batchSize);
+        } finally {
+            jobLockService.release(LOCK_NAME);
+        }
+
+        if (archived > 0) {
+            logger.info("Archived {} users inactive since {} or soft-deleted", archived, cutoff);
+        }
+        if (skipped > 0) {
+            logger.warn("{} users not archived, their username, email or phone number is taken in the archive", skipped);
+        }
+        return archived;
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<ArchivedUser> findArchivedById(Long id) {
+        return enabled ? archivedUserRepository.findById(id) : Optional.empty();
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<ArchivedUser> findArchivedByUsername(String username) {
+        return enabled ? archivedUserRepository.findByUsername(username) : Optional.empty();
+    }
+
+    @Transactional(readOnly = true)
+    public boolean existsByEmail(String email) {
+        return enabled && archivedUserRepository.existsByEmail(email);
+    }
+
+    // Email or phone number held by an archived user other than 'id'
+    @Transactional(readOnly = true)
+    public boolean isEmailTakenByOther(String email, Long id) {
+        return enabled && archivedUserRepository.existsByEmailAndIdNot(email, id);
+    }
+
+    @Transactional(readOnly = true)
+    public boolean isPhoneNumberTakenByOther(String phoneNumber, Long id) {
+        return enabled && archivedUserRepository.existsByPhoneNumberAndIdNot(phoneNumber, id);
+    }
+
+    @Transactional(readOnly = true)
+    public boolean existsByUsername(String username) {
+        return enabled && archivedUserRepository.existsByUsername(username);
+    }
+
+    /**
+     * Moves an archived user back into the hot table on login and marks it active.
+     * Soft-deleted users stay archived and are not authenticated, and so are users whose
+     * email or phone number has since been taken in the hot table.
+     */
+    @Transactional
+    public Optional<User> restoreByUsername(String username) {
+        if (!enabled || sharded) {
+            return Optional.empty();
+        }
+        Optional<ArchivedUser> archived = archivedUserRepository.findByUsername(username);
+        if (archived.isEmpty() || DELETED_STATUS.equals(archived.get().getStatus())) {
+            return Optional.empty();
+        }
+        if (conflictsWithUsers(archived.get())) {
+            logger.warn("Archived user {} not restored, its email or phone number is taken", archived.get().getId());
+            return Optional.empty();
+        }
+
+        Long id = archived.get().getId();
+        unarchive(List.of(id));
+        archivedUserRepository.reactivate(id, "Active", LocalDate.now());
+        logger.info("Restored archived user {} on login", id);
+        return userStore.findById(id);
+    }
+
+    /**
+     * Moves the archived users among 'ids' back into the hot table unchanged (status and
+     * last login kept), so admin updates apply to them. Returns the number moved.
+     * Fails with a 409 exception when one of them clashes with a hot user.
+     */
+    @Transactional
+    public int unarchive(List<Long> ids) {
+        if (!enabled || sharded) {
+            return 0;
+        }
+        // A restored row must not clash with a hot user that took its email or phone number since
+        for (ArchivedUser user : archivedUserRepository.findAllById(ids)) {
+            if (user.getEmail() != null && userStore.existsByEmail(user.getEmail())) {
+                throw new EmailAlreadyExistsException("Email already exists: " + user.getEmail());
+            }
+            if (user.getPhoneNumber() != null && userStore.existsByPhoneNumber(user.getPhoneNumber())) {
+                throw new PhoneNumberAlreadyExistsException("Phone number already exists: " + user.getPhoneNumber());
+            }
+        }
+        if (archivedUserRepository.copyToUsers(ids) == 0) {
+            return 0;
+        }
+        return archivedUserRepository.deleteArchivedByIds(ids);
+    }
+
+    // The archived users among 'ids' that unarchive would refuse
+    @Transactional(readOnly = true)
+    public List<Long> findConflictingIds(List<Long> ids) {
+        if (!enabled || sharded) {
+            return List.of();
+        }
+        return archivedUserRepository.findAllById(ids).stream()
+                .filter(this::conflictsWithUsers)
+                .map(ArchivedUser::getId)
+                .toList();
+    }
+
+    // Deletes the archived users among 'ids', returns the number deleted
+    @Transactional
+    public int deleteArchived(List<Long> ids) {
+        return enabled ? archivedUserRepository.deleteArchivedByIds(ids) : 0;
+    }
+
+    @Transactional(readOnly = true)
+    public List<Long> findArchivedIdsByFilters(String name, String role, String status, Long afterId, int limit) {
+        return enabled
+                ? archivedUserRepository.findIdsByFilters(name, role, status, afterId, PageRequest.of(0, limit))
+                : List.of();
+    }
+
+    private boolean conflictsWithUsers(ArchivedUser user) {
+        return user.getEmail() != null && userStore.existsByEmail(user.getEmail())
+                || user.getPhoneNumber() != null && userStore.existsByPhoneNumber(user.getPhoneNumber());
+    }
+}
@@ -1,19 +1,41 @@
 package com.itRoad.users_service.services;
+import com.itRoad.users_service.Exceptions.BadRequestException;
 import com.itRoad.users_service.Exceptions.EmailAlreadyExistsException;
+import com.itRoad.users_service.Exceptions.PhoneNumberAlreadyExistsException;
 import com.itRoad.users_service.Exceptions.UserNotFoundException;
 import com.itRoad.users_service.Exceptions.UsernameAlreadyExistsException;
+import com.itRoad.users_service.dto.BulkOperationResult;
+import com.itRoad.users_service.dto.BulkUserRequest;
 import com.itRoad.users_service.dto.CreateUserRequest;
+import com.itRoad.users_service.dto.UserFilter;
+import com.itRoad.users_service.models.ArchivedUser;
 import com.itRoad.users_service.models.User;
-import com.itRoad.users_service.repositories.UserRepository;
+import com.itRoad.users_service.repositories.UserJdbcSupport;
+import com.itRoad.users_service.repositories.UserStore;
 import com.itRoad.users_service.dto.UserDTO;
+import com.itRoad.users_service.dto.UserSummaryDTO;
 import com.itRoad.users_service.dto.UpdateUserRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 
 @Service
@@ -21,46 +43,94 @@ import java.util.stream.Collectors;
 public class UserService {
 
     @Autowired
-    private UserRepository userRepository;
+    private UserStore userStore;
 
     @Autowired
     private PasswordEncoder passwordEncoder;
 
-    public List<UserDTO> getAllUsers() {
-        return userRepository.findAll().stream()
-                .map(this::convertToDTO)
+    @Autowired
+    private UserArchiveService userArchiveService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Max ids touched by one bulk statement / transaction
+    @Value("${bulk.chunk-size:500}")
+    private int bulkChunkSize;
+
+    // Concurrent lookups for the same key share one database query
+    private final SingleFlight<Long, UserDTO> userByIdFlight = new SingleFlight<>();
+    private final SingleFlight<String, Optional<User>> userByUsernameFlight = new SingleFlight<>();
+
+    public List<UserSummaryDTO> getAllUsers() {
+        return userStore.findAll().stream()
+                .map(this::convertToSummaryDTO)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Sparse fieldset (?fields=id,username,name): only the requested columns are selected
+     * and serialized, no entity or DTO is built.
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getAllUserFields(String fields) {
+        return userStore.findProjectedByFilters(parseFields(fields), null, null);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getUserFieldsByFilters(String name, String role, String fields) {
+        return userStore.findProjectedByFilters(parseFields(fields), toFilter(name), toFilter(role));
+    }
+
+    // SUPPORTS: callers waiting on another request's lookup must not hold a connection
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public UserDTO getUserById(Long id) {
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> new UserNotFoundException("User not found with id: " + id));
-        return convertToDTO(user);
+        return userByIdFlight.execute(id, () -> userStore.findWithProfileById(id)
+                .map(this::convertToDTO)
+                // Falls back to the archive for users moved out of the hot table
+                .or(() -> userArchiveService.findArchivedById(id).map(this::convertToDTO))
+                .orElseThrow(() -> new UserNotFoundException("User not found with id: " + id)));
+    }
+
+    /**
+     * Loads the user behind a JWT subject. Called for every authenticated request,
+     * so concurrent requests for the same username are coalesced.
+     * An archived user is restored to the hot table, logging in reactivates it.
+     */
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public Optional<User> loadUserForAuthentication(String username) {
+        return userByUsernameFlight.execute(username, () -> {
+            Optional<User> user = userStore.findByUsername(username);
+            return user.isPresent() ? user : userArchiveService.restoreByUsername(username);
+        });
     }
 
     public UserDTO getUserByUsername(String username) {
-        User user = userRepository.findByUsername(username)
+        return userStore.findByUsername(username)
+                .map(this::convertToDTO)
+                .or(() -> userArchiveService.findArchivedByUsername(username).map(this::convertToDTO))
                 .orElseThrow(() -> new UserNotFoundException("User not found with username: " + username));
-        return convertToDTO(user);
     }
 
-    public List<UserDTO> getUsersByFilters(String name, String role, String status) {
-        String nameFilter = "all".equals(name) ? null : name;
-        String roleFilter = "all".equals(role) ? null : role;
-        String statusFilter = "all".equals(status) ? null : status;
+    public List<UserSummaryDTO> getUsersByFilters(String name, String role, String status) {
+        String nameFilter = toFilter(name);
+        String roleFilter = toFilter(role);
+        String statusFilter = toFilter(status);
 
-        return userRepository.findByFilters(nameFilter, roleFilter)
+        return userStore.findByFilters(nameFilter, roleFilter)
                 .stream()
-                .map(this::convertToDTO)
+                .map(this::convertToSummaryDTO)
                 .collect(Collectors.toList());
     }
 
     public UserDTO createUser(@Valid CreateUserRequest request) {
-        if (userRepository.existsByEmail(request.getEmail())) {
+        // Archived users keep their username and email
+        if (userStore.existsByEmail(request.getEmail()) || userArchiveService.existsByEmail(request.getEmail())) {
             throw new EmailAlreadyExistsException("Email already exists: " + request.getEmail());
         }
 
-        if (userRepository.existsByUsername(request.getUsername())) {
+        if (userStore.existsByUsername(request.getUsername())
+                || userArchiveService.existsByUsername(request.getUsername())) {
             throw new UsernameAlreadyExistsException("Username already exists: " + request.getUsername());
         }
 
@@ -72,12 +142,12 @@ public class UserService {
         user.setRole(request.getRole());
         user.setLastLogin(LocalDate.now());
 
-        User savedUser = userRepository.save(user);
+        User savedUser = userStore.save(user);
         return convertToDTO(savedUser);
     }
     // Add this updated method to your UserService.java class
     public UserDTO updateUser(Long id, UpdateUserRequest request) {
-        User user = userRepository.findById(id)
+        User user = findOrUnarchive(id)
                 .orElseThrow(() -> new UserNotFoundException("User not found with id: " + id));
 
         // Update name if provided
@@ -88,7 +158,7 @@ public class UserService {
         // Update email if provided and different from current
         if (request.getEmail() != null && !request.getEmail().trim().isEmpty() &&
                 !request.getEmail().equals(user.getEmail())) {
-            if (userRepository.existsByEmail(request.getEmail())) {
+            if (userStore.existsByEmail(request.getEmail()) || userArchiveService.existsByEmail(request.getEmail())) {
                 throw new EmailAlreadyExistsException("Email already exists: " + request.getEmail());
             }
             user.setEmail(request.getEmail().trim());
@@ -110,27 +180,303 @@ public class UserService {
             user.setPhoneNumber(request.getPhoneNumber().trim());
         }
 
-        User updatedUser = userRepository.save(user);
+        User updatedUser = userStore.save(user);
+        forgetLookups(id, user.getUsername());
         return convertToDTO(updatedUser);
     }
 
+    /**
+     * Partial update in a single UPDATE statement that writes only the provided fields
+     * (same trimming rules as updateUser). The entity is never loaded, email/phone
+     * uniqueness is checked against the archive and left to the database constraints
+     * for the hot table.
+     */
+    public UserDTO patchUser(Long id, UpdateUserRequest request) {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        if (request.getName() != null && !request.getName().trim().isEmpty()) {
+            changes.put("name", request.getName().trim());
+        }
+        if (request.getEmail() != null && !request.getEmail().trim().isEmpty()) {
+            changes.put("email", request.getEmail().trim());
+        }
+        if (request.getBio() != null) {
+            changes.put("bio", request.getBio().trim());
+        }
+        if (request.getAddress() != null) {
+            changes.put("address", request.getAddress().trim());
+        }
+        if (request.getPhoneNumber() != null && !request.getPhoneNumber().trim().isEmpty()) {
+            changes.put("phoneNumber", request.getPhoneNumber().trim());
+        }
+        if (changes.isEmpty()) {
+            return getUserById(id);
+        }
+        // The archive is another table, its unique constraints do not cover the hot rows
+        if (changes.containsKey("email") && userArchiveService.isEmailTakenByOther((String) changes.get("email"), id)) {
+            throw new EmailAlreadyExistsException("Email already exists: " + changes.get("email"));
+        }
+        if (changes.containsKey("phoneNumber")
+                && userArchiveService.isPhoneNumberTakenByOther((String) changes.get("phoneNumber"), id)) {
+            throw new PhoneNumberAlreadyExistsException("Phone number already exists: " + changes.get("phoneNumber"));
+        }
+
+        User user;
+        try {
+            // An archived user is moved back to the hot table first
+            user = userStore.patch(id, changes)
+                    .or(() -> userArchiveService.unarchive(List.of(id)) > 0
+                            ? userStore.patch(id, changes) : Optional.empty())
+                    .orElseThrow(() -> new UserNotFoundException("User not found with id: " + id));
+        } catch (DataIntegrityViolationException e) {
+            throw toDuplicateException(e, changes);
+        }
+        forgetLookups(id, user.getUsername());
+        return convertToDTO(user);
+    }
+
     public void deleteUser(Long id) {
-        if (!userRepository.existsById(id)) {
+        // Single DELETE statement, the entity is never loaded
+        if (userStore.deleteByIds(List.of(id)) == 0 && userArchiveService.deleteArchived(List.of(id)) == 0) {
             throw new UserNotFoundException("User not found with id: " + id);
         }
-        userRepository.deleteById(id);
+        forgetLookups(id, null);
+    }
+
+    /**
+     * Archived targets are moved back to the hot table before the update. Those clashing
+     * with a hot user's email or phone number are skipped and listed in the result.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BulkOperationResult bulkUpdateStatus(BulkUserRequest request) {
+        String status = requireValue(request, "status");
+        List<Long> conflicting = new ArrayList<>();
+        return runInChunks(request, conflicting, ids -> {
+            List<Long> targets = unarchiveForUpdate(ids, conflicting);
+            return targets.isEmpty() ? 0 : userStore.updateStatusByIds(targets, status);
+        });
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BulkOperationResult bulkUpdateRole(BulkUserRequest request) {
+        String role = requireValue(request, "role");
+        List<Long> conflicting = new ArrayList<>();
+        return runInChunks(request, conflicting, ids -> {
+            List<Long> targets = unarchiveForUpdate(ids, conflicting);
+            return targets.isEmpty() ? 0 : userStore.updateRoleByIds(targets, role);
+        });
+    }
+
+    /**
+     * Deletes hot and archived users.
+     * The caller is never deleted, even when targeted by id or matched by the filter.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BulkOperationResult bulkDelete(BulkUserRequest request, Long callerId) {
+        return runInChunks(request, List.of(), ids -> {
+            List<Long> others = ids.stream().filter(id -> !id.equals(callerId)).toList();
+            return others.isEmpty() ? 0 : userStore.deleteByIds(others) + userArchiveService.deleteArchived(others);
+        });
+    }
+
+    // Unarchives the chunk except the clashing ids, which are added to 'conflicting'; returns the rest
+    private List<Long> unarchiveForUpdate(List<Long> ids, List<Long> conflicting) {
+        List<Long> clashing = userArchiveService.findConflictingIds(ids);
+        conflicting.addAll(clashing);
+        List<Long> targets = clashing.isEmpty() ? ids : ids.stream().filter(id -> !clashing.contains(id)).toList();
+        if (!targets.isEmpty()) {
+            userArchiveService.unarchive(targets);
+        }
+        return targets;
+    }
+
+    // With the profile: the caller saves the user and returns it in full
+    private Optional<User> findOrUnarchive(Long id) {
+        return userStore.findWithProfileById(id)
+                .or(() -> userArchiveService.unarchive(List.of(id)) > 0 ? userStore.findWithProfileById(id) : Optional.empty());
     }
 
     public UserDTO updateLastLogin(Long id) {
-        User user = userRepository.findById(id)
+        User user = userStore.findWithProfileById(id)
+                // A login brings an archived user back to the hot table
+                .or(() -> userArchiveService.findArchivedById(id)
+                        .flatMap(archived -> userArchiveService.restoreByUsername(archived.getUsername())))
                 .orElseThrow(() -> new UserNotFoundException("User not found with id: " + id));
 
         user.setLastLogin(LocalDate.now());
-        User updatedUser = userRepository.save(user);
+        User updatedUser = userStore.save(user);
+        forgetLookups(id, user.getUsername());
         return convertToDTO(updatedUser);
     }
 
+    /**
+     * Applies a set-based statement to the targeted users, 'bulk.chunk-size' ids at a time,
+     * each chunk in its own short transaction so locks are never held for the whole set.
+     * Filter targets are walked with an id keyset cursor instead of being loaded up front.
+     * A filter without any criterion matches every user and needs "all": true.
+     * 'conflicting' collects the ids the statement skipped, it is returned in the result.
+     */
+    private BulkOperationResult runInChunks(BulkUserRequest request, List<Long> conflicting,
+                                            ToIntFunction<List<Long>> statement) {
+        boolean byIds = request.getIds() != null && !request.getIds().isEmpty();
+        if (byIds == (request.getFilter() != null)) {
+            throw new BadRequestException("Provide either 'ids' or 'filter'");
+        }
+        if (!byIds && isEmpty(request.getFilter()) && !request.isAll()) {
+            throw new BadRequestException("Filter matches every user, set \"all\": true to confirm");
+        }
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        long affected = 0;
+
+        if (byIds) {
+            List<Long> ids = request.getIds().stream().distinct().toList();
+            for (int from = 0; from < ids.size(); from += bulkChunkSize) {
+                List<Long> chunk = ids.subList(from, Math.min(from + bulkChunkSize, ids.size()));
+                affected += applyChunk(transaction, chunk, statement);
+            }
+        } else {
+            UserFilter filter = request.getFilter();
+            String name = toFilter(filter.getName());
+            String role = toFilter(filter.getRole());
+            String status = toFilter(filter.getStatus());
+            // Hot table, then the archive
+            affected += walkInChunks(transaction, statement, (afterId, limit) ->
+                    userStore.findIdsByFilters(name, role, status, afterId, PageRequest.of(0, limit)));
+            affected += walkInChunks(transaction, statement, (afterId, limit) ->
+                    userArchiveService.findArchivedIdsByFilters(name, role, status, afterId, limit));
+        }
+
+        return new BulkOperationResult(affected, conflicting);
+    }
+
+    private long walkInChunks(TransactionTemplate transaction, ToIntFunction<List<Long>> statement,
+                              BiFunction<Long, Integer, List<Long>> nextIds) {
+        long affected = 0;
+        Long afterId = Long.MIN_VALUE;
+        List<Long> chunk;
+        do {
+            chunk = nextIds.apply(afterId, bulkChunkSize);
+            if (chunk.isEmpty()) {
+                break;
+            }
+            affected += applyChunk(transaction, chunk, statement);
+            afterId = chunk.get(chunk.size() - 1);
+        } while (chunk.size() == bulkChunkSize);
+        return affected;
+    }
+
+    private int applyChunk(TransactionTemplate transaction, List<Long> chunk, ToIntFunction<List<Long>> statement) {
+        Integer count = transaction.execute(status -> statement.applyAsInt(chunk));
+        // Committed: later lookups must not share a query that read the old rows
+        chunk.forEach(userByIdFlight::forget);
+        userByUsernameFlight.forgetAll();
+        return count == null ? 0 : count;
+    }
+
+    // Maps a unique constraint violation to the field that caused it
+    private static RuntimeException toDuplicateException(DataIntegrityViolationException e, Map<String, Object> changes) {
+        String message = String.valueOf(e.getMostSpecificCause().getMessage()).toLowerCase();
+        if (changes.containsKey("phoneNumber") && message.contains("phone_number")) {
+            return new PhoneNumberAlreadyExistsException("Phone number already exists: " + changes.get("phoneNumber"));
+        }
+        if (changes.containsKey("email") && message.contains("email")) {
+            return new EmailAlreadyExistsException("Email already exists: " + changes.get("email"));
+        }
+        return e;
+    }
+
+    private static String requireValue(BulkUserRequest request, String field) {
+        if (request.getValue() == null || request.getValue().isBlank()) {
+            throw new BadRequestException("New " + field + " is required in 'value'");
+        }
+        return request.getValue().trim();
+    }
+
+    // Comma separated property names, checked against the allowlist, duplicates dropped
+    private static List<String> parseFields(String fields) {
+        List<String> parsed = new ArrayList<>();
+        for (String field : fields.split(",")) {
+            String trimmed = field.trim();
+            if (trimmed.isEmpty() || parsed.contains(trimmed)) {
+                continue;
+            }
+            if (!UserJdbcSupport.PROJECTABLE_COLUMNS.containsKey(trimmed)) {
+                throw new BadRequestException("Unknown field: " + trimmed + ", allowed fields are "
+                        + String.join(",", UserJdbcSupport.PROJECTABLE_COLUMNS.keySet()));
+            }
+            parsed.add(trimmed);
+        }
+        if (parsed.isEmpty()) {
+            throw new BadRequestException("fields must name at least one field");
+        }
+        return parsed;
+    }
+
+    private static boolean isEmpty(UserFilter filter) {
+        return toFilter(filter.getName()) == null && toFilter(filter.getRole()) == null
+                && toFilter(filter.getStatus()) == null;
+    }
+
+    // "all" (the /search default) and null both mean no filter
+    private static String toFilter(String value) {
+        return value == null || "all".equals(value) ? null : value;
+    }
+
+    /**
+     * Detaches in-flight lookups touched by a write, right away and again after commit,
+     * so a request arriving after the write never shares a query that started before it.
+     * A null username forgets every in-flight username lookup.
+     */
+    private void forgetLookups(Long id, String username) {
+        Runnable forget = () -> {
+            userByIdFlight.forget(id);
+            if (username != null) {
+                userByUsernameFlight.forget(username);
+            } else {
+                userByUsernameFlight.forgetAll();
+            }
+        };
+        forget.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    forget.run();
+                }
+            });
+        }
+    }
+
     private UserDTO convertToDTO(User user) {
+        UserDTO dto = new UserDTO();
+        dto.setId(user.getId());
+        dto.setName(user.getName());
+        dto.setEmail(user.getEmail());
+        dto.setUsername(user.getUsername());
+        dto.setRole(user.getRole());
+        dto.setStatus(user.getStatus());
+        dto.setLastLogin(user.getLastLogin());
+        dto.setPhoneNumber(user.getPhoneNumber());
+        dto.setBio(user.getBio());
+        dto.setAddress(user.getAddress());
+        return dto;
+    }
+
+    // List views: bio and address are lazy and not shown, reading them would cost a query per user
+    private UserSummaryDTO convertToSummaryDTO(User user) {
+        UserSummaryDTO dto = new UserSummaryDTO();
+        dto.setId(user.getId());
+        dto.setName(user.getName());
+        dto.setEmail(user.getEmail());
+        dto.setUsername(user.getUsername());
+        dto.setRole(user.getRole());
+        dto.setStatus(user.getStatus());
+        dto.setLastLogin(user.getLastLogin());
+        dto.setPhoneNumber(user.getPhoneNumber());
+        return dto;
+    }
+
+    private UserDTO convertToDTO(ArchivedUser user) {
         UserDTO dto = new UserDTO();
         dto.setId(user.getId());
         dto.setName(user.getName());
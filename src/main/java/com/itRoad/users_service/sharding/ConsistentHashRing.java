@@ -0,0 +1,59 @@
+package com.itRoad.users_service.sharding;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring over shard names. Each shard owns 'virtualNodes' points on the ring,
+ * so adding a shard to N existing ones only moves about 1/(N+1) of the keys.
+ */
+public final class ConsistentHashRing {
+
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+    private final List<String> shards;
+
+    public ConsistentHashRing(Collection<String> shards, int virtualNodes) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.shards = List.copyOf(shards);
+        for (String shard : this.shards) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(nodeHash(shard + "#" + i), shard);
+            }
+        }
+    }
+
+    public List<String> shards() {
+        return shards;
+    }
+
+    public String shardFor(long id) {
+        Map.Entry<Long, String> owner = ring.ceilingEntry(mix(id));
+        return (owner != null ? owner : ring.firstEntry()).getValue();
+    }
+
+    // splitmix64 finalizer: spreads sequential ids uniformly over the ring
+    private static long mix(long key) {
+        long z = key + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static long nodeHash(String node) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(node.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.itRoad.users_service.sharding;
+
+import com.itRoad.users_service.models.User;
+import com.itRoad.users_service.repositories.UserJdbcSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Moves users to the shard the ring now assigns them, after shards were added, and
+ * loads the users of the unsharded primary database when sharding is turned on.
+ * Runs online: for every misplaced row it
+ * <ol>
+ *     <li>copies the row to its new shard,</li>
+ *     <li>points the directory at the new shard,</li>
+ *     <li>deletes the source row only if it is still identical to the copy.</li>
+ * </ol>
+ * From step 1 on, lookups and writes reach the copy first, so it is never deleted or
+ * overwritten with older data. A source row written before the copy was made fails step 3
+ * and is copied again, but only over a copy nothing has written to since; otherwise the
+ * copy is the latest state and the source row is dropped.
+ * Reads stay correct throughout thanks to the owner / directory fallback of {@link ShardedUserRepository}.
+ */
+public class ShardRebalancer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardRebalancer.class);
+
+    private static final int MAX_ATTEMPTS = 5;
+
+    private static final String SELECT_BY_ID =
+            "SELECT " + UserJdbcSupport.SELECT_COLUMNS + " FROM users WHERE id = :id";
+
+    // Every column, a re-copy replaces the whole row (unlike the COALESCE of a save)
+    private static final String UPDATE_ALL = "UPDATE users SET username = :username, password = :password, "
+            + "role = :role, name = :name, email = :email, status = :status, last_login = :lastLogin, "
+            + "address = :address, bio = :bio, phone_number = :phoneNumber WHERE id = :id";
+
+    // Nullable columns compared by the "row unchanged" conditions, with their parameter names
+    private static final Map<String, String> NULLABLE_COLUMNS = Map.of(
+            "name", "name",
+            "email", "email",
+            "status", "status",
+            "last_login", "lastLogin",
+            "address", "address",
+            "bio", "bio",
+            "phone_number", "phoneNumber");
+
+    private final ShardedUserRepository repository;
+    private final int batchSize;
+
+    public ShardRebalancer(ShardedUserRepository repository, int batchSize) {
+        this.repository = repository;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return number of users moved
+     */
+    public int rebalance() {
+        int moved = 0;
+        for (Map.Entry<String, NamedParameterJdbcTemplate> shard : repository.shards().entrySet()) {
+            int movedFromShard = rebalanceShard(shard.getKey(), shard.getValue());
+            if (movedFromShard > 0) {
+                logger.info("Moved {} users off shard {}", movedFromShard, shard.getKey());
+            }
+            moved += movedFromShard;
+        }
+        return moved;
+    }
+
+    /**
+     * Initial load when sharding is turned on: copies the users of the primary database
+     * ('users', then 'users_archive') into their shards and the directory, keeping their ids
+     * (the directory allocates new ids above them, see {@link ShardedUserRepository#reservePrimaryIds()}).
+     * Users already placed in the directory are skipped,
+     * so an interrupted import can be run again. Archived users become regular users in the
+     * shards and leave the archive; the primary 'users' rows are left in place, unused, until
+     * the user is deleted (see {@link ShardedUserRepository#deleteByIds(List)}).
+     *
+     * @return number of users imported
+     */
+    public int importFromPrimary() {
+        NamedParameterJdbcTemplate primary = repository.directory();
+        repository.reservePrimaryIds();
+
+        int imported = 0;
+        if (ShardedUserRepository.tableExists(primary, "users")) {
+            imported += importTable(primary, "users", false);
+        }
+        if (ShardedUserRepository.tableExists(primary, "users_archive")) {
+            imported += importTable(primary, "users_archive", true);
+        }
+        logger.info("Imported {} users from the primary database into the shards", imported);
+        return imported;
+    }
+
+    private int importTable(NamedParameterJdbcTemplate primary, String table, boolean removeImported) {
+        String select = "SELECT " + UserJdbcSupport.SELECT_COLUMNS + " FROM " + table
+                + " WHERE id > :afterId ORDER BY id LIMIT :limit";
+        int imported = 0;
+        long afterId = 0;
+        while (true) {
+            List<User> users = primary.query(select,
+                    new MapSqlParameterSource("afterId", afterId).addValue("limit", batchSize),
+                    UserJdbcSupport.USER_ROW_MAPPER);
+            if (users.isEmpty()) {
+                return imported;
+            }
+            // One directory query per batch skips the users a previous run already placed
+            Set<Long> placed = new HashSet<>(repository.directory().queryForList(
+                    "SELECT id FROM user_directory WHERE id IN (:ids) AND shard IS NOT NULL",
+                    new MapSqlParameterSource("ids", users.stream().map(User::getId).toList()), Long.class));
+            for (User user : users) {
+                if (!placed.contains(user.getId()) && importUser(user)) {
+                    imported++;
+                }
+                if (removeImported && (placed.contains(user.getId()) || repository.recordedShard(user.getId()) != null)) {
+                    primary.update("DELETE FROM " + table + " WHERE id = :id", new MapSqlParameterSource("id", user.getId()));
+                }
+            }
+            afterId = users.get(users.size() - 1).getId();
+        }
+    }
+
+    private boolean importUser(User user) {
+        NamedParameterJdbcTemplate directory = repository.directory();
+        MapSqlParameterSource params = ShardedUserRepository.params(user);
+        List<String> placed = directory.queryForList("SELECT shard FROM user_directory WHERE id = :id", params, String.class);
+        if (!placed.isEmpty() && placed.get(0) != null) {
+            return false;
+        }
+        if (placed.isEmpty()) {
+            try {
+                directory.update("INSERT INTO user_directory (id, username, email, phone_number) "
+                        + "VALUES (:id, :username, :email, :phoneNumber)", params);
+            } catch (DuplicateKeyException e) {
+                logger.warn("User {} not imported, its username, email or phone number is already taken", user.getId());
+                return false;
+            }
+        }
+
+        // Same order as an insert: shard row, then the directory records the shard.
+        // A row left by an interrupted run has been served since and may have been written to: keep it
+        String owner = repository.ring().shardFor(user.getId());
+        NamedParameterJdbcTemplate target = repository.shards().get(owner);
+        if (!existsOn(target, user.getId())) {
+            target.update(ShardedUserRepository.INSERT_USER, params);
+        }
+        placeOn(user.getId(), owner);
+        return true;
+    }
+
+    private int rebalanceShard(String name, NamedParameterJdbcTemplate source) {
+        int moved = 0;
+        long afterId = 0;
+        while (true) {
+            List<Long> ids = source.queryForList("SELECT id FROM users WHERE id > :afterId ORDER BY id LIMIT :limit",
+                    new MapSqlParameterSource("afterId", afterId).addValue("limit", batchSize), Long.class);
+            if (ids.isEmpty()) {
+                return moved;
+            }
+            for (Long id : ids) {
+                String owner = repository.ring().shardFor(id);
+                if (!owner.equals(name) && move(id, name, source, owner)) {
+                    moved++;
+                }
+            }
+            afterId = ids.get(ids.size() - 1);
+        }
+    }
+
+    private boolean move(Long id, String sourceName, NamedParameterJdbcTemplate source, String owner) {
+        NamedParameterJdbcTemplate target = repository.shards().get(owner);
+        MapSqlParameterSource idParam = new MapSqlParameterSource("id", id);
+
+        // Once the owner has a row, lookups and writes go to it: that row is never deleted or overwritten
+        if (existsOn(target, id)) {
+            source.update("DELETE FROM users WHERE id = :id", idParam);
+            placeOn(id, owner);
+            return true;
+        }
+
+        MapSqlParameterSource copied = null;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            Optional<User> row = source.query(SELECT_BY_ID, idParam, UserJdbcSupport.USER_ROW_MAPPER)
+                    .stream().findFirst();
+            if (row.isEmpty()) {
+                // Deleted meanwhile: a copy made after the delete would bring the user back
+                if (copied != null) {
+                    target.update("DELETE FROM users WHERE id = :id", idParam);
+                }
+                return false;
+            }
+            MapSqlParameterSource copy = ShardedUserRepository.params(row.get());
+
+            if (copied == null) {
+                target.update(ShardedUserRepository.INSERT_USER, copy);
+                placeOn(id, owner);
+            } else if (target.update(UPDATE_ALL + unchanged(copied, "copied_"), recopy(copy, copied)) == 0) {
+                // The copy was written to since: it holds the latest state, the source row is stale
+                source.update("DELETE FROM users WHERE id = :id", idParam);
+                return true;
+            }
+            copied = copy;
+
+            if (source.update("DELETE FROM users WHERE id = :id" + unchanged(copy, ""), copy) == 1) {
+                return true;
+            }
+        }
+
+        // The owner keeps serving its copy, the next rebalance removes the source row
+        logger.warn("User {} kept changing during rebalance, its row on shard {} is left for the next run", id, sourceName);
+        return false;
+    }
+
+    private static boolean existsOn(NamedParameterJdbcTemplate shard, Long id) {
+        return !shard.queryForList("SELECT id FROM users WHERE id = :id", new MapSqlParameterSource("id", id), Long.class)
+                .isEmpty();
+    }
+
+    private void placeOn(Long id, String shard) {
+        repository.directory().update("UPDATE user_directory SET shard = :shard WHERE id = :id",
+                new MapSqlParameterSource("id", id).addValue("shard", shard));
+    }
+
+    // " AND column = :param" for every column of the row, with IS NULL written out for null values
+    private static String unchanged(MapSqlParameterSource row, String prefix) {
+        StringBuilder sql = new StringBuilder(" AND username = :" + prefix + "username AND password = :" + prefix
+                + "password AND role = :" + prefix + "role");
+        NULLABLE_COLUMNS.forEach((column, param) -> sql.append(" AND ").append(column)
+                .append(row.getValue(param) == null ? " IS NULL" : " = :" + prefix + param));
+        return sql.toString();
+    }
+
+    // The new values, plus the previous copy under the "copied_" names used by unchanged()
+    private static MapSqlParameterSource recopy(MapSqlParameterSource copy, MapSqlParameterSource copied) {
+        MapSqlParameterSource params = new MapSqlParameterSource(copy.getValues());
+        copied.getValues().forEach((name, value) -> params.addValue("copied_" + name, value));
+        return params;
+    }
+}
@@ -0,0 +1,465 @@
+package com.itRoad.users_service.sharding;
+
+import com.itRoad.users_service.models.User;
+import com.itRoad.users_service.repositories.UserJdbcSupport;
+import com.itRoad.users_service.repositories.UserStore;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import javax.sql.DataSource;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * {@link UserStore} spread over several databases.
+ * <ul>
+ *     <li>Users are placed by id on a {@link ConsistentHashRing} of shards.</li>
+ *     <li>The 'user_directory' table on the primary database allocates ids, enforces global
+ *     uniqueness of username / email / phone and maps them to ids, and records the shard
+ *     each user actually lives on.</li>
+ *     <li>Id lookups go to the ring owner first and fall back to the recorded shard, so the
+ *     service stays correct while {@link ShardRebalancer} moves users after a shard is added.</li>
+ *     <li>Queries without an id (findAll, filters, bulk writes) fan out to all shards in parallel.</li>
+ * </ul>
+ * There are no cross-shard transactions: each statement commits on its own shard.
+ */
+public class ShardedUserRepository implements UserStore, AutoCloseable {
+
+    private static final String USERS_DDL = "CREATE TABLE IF NOT EXISTS users ("
+            + "id BIGINT PRIMARY KEY, username VARCHAR(255) NOT NULL UNIQUE, password VARCHAR(255) NOT NULL, "
+            + "role VARCHAR(255) NOT NULL, name VARCHAR(255), email VARCHAR(255) UNIQUE, status VARCHAR(255), "
+            + "last_login DATE, address VARCHAR(255), bio VARCHAR(255), phone_number VARCHAR(255) UNIQUE)";
+
+    private static final String DIRECTORY_DDL = "CREATE TABLE IF NOT EXISTS user_directory ("
+            + "id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, username VARCHAR(255) NOT NULL UNIQUE, "
+            + "email VARCHAR(255) UNIQUE, phone_number VARCHAR(255) UNIQUE, shard VARCHAR(64))";
+
+    static final String INSERT_USER = "INSERT INTO users (" + UserJdbcSupport.SELECT_COLUMNS + ") VALUES "
+            + "(:id, :username, :password, :role, :name, :email, :status, :lastLogin, :address, :bio, :phoneNumber)";
+
+    // A null bio / address is never a change: users read without their profile keep it
+    private static final String UPDATE_USER = "UPDATE users SET username = :username, password = :password, "
+            + "role = :role, name = :name, email = :email, status = :status, last_login = :lastLogin, "
+            + "address = COALESCE(:address, address), bio = COALESCE(:bio, bio), phone_number = :phoneNumber "
+            + "WHERE id = :id";
+
+    // Also restores an entry when the shard write that follows it fails, as insert() removes it
+    private static final String UPDATE_DIRECTORY = "UPDATE user_directory SET username = :username, "
+            + "email = :email, phone_number = :phoneNumber WHERE id = :id";
+
+    // Lookups and lists leave the profile columns out, only findWithProfileById reads them
+    private static final String SELECT_USERS = "SELECT " + UserJdbcSupport.SUMMARY_COLUMNS + " FROM users";
+
+    private static final String SELECT_PROFILE = "SELECT " + UserJdbcSupport.SELECT_COLUMNS + " FROM users WHERE id = :id";
+
+    private final Map<String, DataSource> dataSources;
+    private final Map<String, NamedParameterJdbcTemplate> shards = new LinkedHashMap<>();
+    private final NamedParameterJdbcTemplate directory;
+    private final ConsistentHashRing ring;
+    private final ExecutorService fanOut;
+    private final boolean supportsReturning;
+
+    public ShardedUserRepository(Map<String, DataSource> shardDataSources, DataSource directoryDataSource,
+                                 int virtualNodes, int fanOutThreads) {
+        this.dataSources = new LinkedHashMap<>(shardDataSources);
+        shardDataSources.forEach((name, dataSource) -> shards.put(name, new NamedParameterJdbcTemplate(dataSource)));
+        this.directory = new NamedParameterJdbcTemplate(directoryDataSource);
+        this.ring = new ConsistentHashRing(shards.keySet(), virtualNodes);
+        this.fanOut = Executors.newFixedThreadPool(fanOutThreads);
+
+        directory.getJdbcTemplate().execute(DIRECTORY_DDL);
+        shards.values().forEach(shard -> shard.getJdbcTemplate().execute(USERS_DDL));
+        this.supportsReturning = UserJdbcSupport.isPostgres(shards.values().iterator().next());
+        reservePrimaryIds();
+    }
+
+    // ---- Lookups by key: one shard
+
+    @Override
+    public Optional<User> findById(Long id) {
+        return onOwner(id, shard -> shard.query(SELECT_USERS + " WHERE id = :id",
+                new MapSqlParameterSource("id", id), UserJdbcSupport.SUMMARY_ROW_MAPPER).stream().findFirst(),
+                Optional::isPresent);
+    }
+
+    @Override
+    public Optional<User> findWithProfileById(Long id) {
+        return onOwner(id, shard -> shard.query(SELECT_PROFILE, new MapSqlParameterSource("id", id),
+                UserJdbcSupport.USER_ROW_MAPPER).stream().findFirst(), Optional::isPresent);
+    }
+
+    @Override
+    public Optional<User> findByUsername(String username) {
+        return directoryId("username", username).flatMap(this::findById);
+    }
+
+    Optional<User> findByEmail(String email) {
+        return directoryId("email", email).flatMap(this::findById);
+    }
+
+    @Override
+    public boolean existsByUsername(String username) {
+        return directoryId("username", username).isPresent();
+    }
+
+    @Override
+    public boolean existsByEmail(String email) {
+        return directoryId("email", email).isPresent();
+    }
+
+    @Override
+    public boolean existsByPhoneNumber(String phoneNumber) {
+        return directoryId("phone_number", phoneNumber).isPresent();
+    }
+
+    // ---- Queries without a key: scatter-gather
+
+    @Override
+    public List<User> findAll() {
+        return sortedById(scatter(shard -> shard.query(SELECT_USERS, UserJdbcSupport.SUMMARY_ROW_MAPPER)));
+    }
+
+    List<User> findByRole(String role) {
+        return findByFilters(null, role, null);
+    }
+
+    List<User> findByStatus(String status) {
+        return findByFilters(null, null, status);
+    }
+
+    @Override
+    public List<User> findByFilters(String name, String role) {
+        return findByFilters(name, role, null);
+    }
+
+    private List<User> findByFilters(String name, String role, String status) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String where = filterClause(name, role, status, params);
+        return sortedById(scatter(shard -> shard.query(SELECT_USERS + where, params, UserJdbcSupport.SUMMARY_ROW_MAPPER)));
+    }
+
+    @Override
+    public List<Long> findIdsByFilters(String name, String role, String status, Long afterId, Pageable pageable) {
+        MapSqlParameterSource params = new MapSqlParameterSource("afterId", afterId)
+                .addValue("limit", pageable.getPageSize());
+        String where = filterClause(name, role, status, params);
+        String sql = "SELECT id FROM users" + where + (where.isEmpty() ? " WHERE" : " AND")
+                + " id > :afterId ORDER BY id LIMIT :limit";
+        // Each shard returns its first page, the merged first page is the global one
+        List<Long> ids = scatter(shard -> shard.queryForList(sql, params, Long.class));
+        Collections.sort(ids);
+        return ids.size() > pageable.getPageSize() ? List.copyOf(ids.subList(0, pageable.getPageSize())) : ids;
+    }
+
+    @Override
+    public List<Map<String, Object>> findProjectedByFilters(List<String> fields, String name, String role) {
+        StringJoiner select = new StringJoiner(", ", "SELECT id AS shard_sort_id, ", " FROM users");
+        for (String field : fields) {
+            String column = UserJdbcSupport.PROJECTABLE_COLUMNS.get(field);
+            if (column == null) {
+                throw new IllegalArgumentException("Unknown field: " + field);
+            }
+            select.add(column);
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String sql = select + filterClause(name, role, null, params);
+
+        // The id travels along so rows from all shards merge in id order, like findAll
+        List<Map.Entry<Long, Map<String, Object>>> rows = scatter(shard -> shard.query(sql, params, (rs, rowNum) -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int i = 0; i < fields.size(); i++) {
+                Object value = rs.getObject(i + 2);
+                row.put(fields.get(i), value instanceof Date date ? date.toLocalDate() : value);
+            }
+            return Map.entry(rs.getLong(1), row);
+        }));
+        rows.sort(Map.Entry.comparingByKey());
+        return rows.stream().map(Map.Entry::getValue).toList();
+    }
+
+    long count() {
+        return scatter(shard -> List.of(shard.getJdbcTemplate().queryForObject("SELECT COUNT(*) FROM users", Long.class)))
+                .stream().mapToLong(Long::longValue).sum();
+    }
+
+    // ---- Writes
+
+    @Override
+    public <S extends User> S save(S user) {
+        if (user.getId() == null) {
+            insert(user);
+            return user;
+        }
+
+        // Directory first: a duplicate username / email / phone fails before the shard is touched
+        Optional<MapSqlParameterSource> previous = directoryEntry(user.getId());
+        directory.update(UPDATE_DIRECTORY, params(user));
+        int updated;
+        try {
+            updated = onOwner(user.getId(), shard -> shard.update(UPDATE_USER, params(user)), count -> count > 0);
+        } catch (RuntimeException e) {
+            previous.ifPresent(entry -> directory.update(UPDATE_DIRECTORY, entry));
+            throw e;
+        }
+        if (updated == 0) {
+            previous.ifPresent(entry -> directory.update(UPDATE_DIRECTORY, entry));
+            throw new EmptyResultDataAccessException("No user with id " + user.getId(), 1);
+        }
+        return user;
+    }
+
+    @Override
+    public Optional<User> patch(Long id, Map<String, Object> changes) {
+        Map<String, Object> uniqueChanges = new LinkedHashMap<>();
+        if (changes.containsKey("email")) {
+            uniqueChanges.put("email", changes.get("email"));
+        }
+        if (changes.containsKey("phoneNumber")) {
+            uniqueChanges.put("phone_number", changes.get("phoneNumber"));
+        }
+        Optional<MapSqlParameterSource> previous = Optional.empty();
+        if (!uniqueChanges.isEmpty()) {
+            previous = directoryEntry(id);
+            StringJoiner assignments = new StringJoiner(", ", "UPDATE user_directory SET ", " WHERE id = :id");
+            MapSqlParameterSource params = new MapSqlParameterSource("id", id);
+            uniqueChanges.forEach((column, value) -> {
+                assignments.add(column + " = :" + column);
+                params.addValue(column, value);
+            });
+            if (directory.update(assignments.toString(), params) == 0) {
+                return Optional.empty();
+            }
+        }
+        Optional<User> patched;
+        try {
+            patched = onOwner(id, shard -> UserJdbcSupport.patch(shard, supportsReturning, id, changes), Optional::isPresent);
+        } catch (RuntimeException e) {
+            previous.ifPresent(entry -> directory.update(UPDATE_DIRECTORY, entry));
+            throw e;
+        }
+        if (patched.isEmpty()) {
+            previous.ifPresent(entry -> directory.update(UPDATE_DIRECTORY, entry));
+        }
+        return patched;
+    }
+
+    @Override
+    public int updateStatusByIds(List<Long> ids, String status) {
+        MapSqlParameterSource params = new MapSqlParameterSource("ids", ids).addValue("status", status);
+        return scatterCount(shard -> shard.update("UPDATE users SET status = :status WHERE id IN (:ids)", params));
+    }
+
+    @Override
+    public int updateRoleByIds(List<Long> ids, String role) {
+        MapSqlParameterSource params = new MapSqlParameterSource("ids", ids).addValue("role", role);
+        return scatterCount(shard -> shard.update("UPDATE users SET role = :role WHERE id IN (:ids)", params));
+    }
+
+    @Override
+    public int deleteByIds(List<Long> ids) {
+        MapSqlParameterSource params = new MapSqlParameterSource("ids", ids);
+        int deleted = scatterCount(shard -> shard.update("DELETE FROM users WHERE id IN (:ids)", params));
+        directory.update("DELETE FROM user_directory WHERE id IN (:ids)", params);
+        if (tableExists(directory, "users")) {
+            // The unsharded copy goes too, otherwise the next import would bring the user back
+            directory.update("DELETE FROM users WHERE id IN (:ids)", params);
+        }
+        return deleted;
+    }
+
+    // ---- Shard plumbing, also used by ShardRebalancer
+
+    ConsistentHashRing ring() {
+        return ring;
+    }
+
+    Map<String, NamedParameterJdbcTemplate> shards() {
+        return shards;
+    }
+
+    NamedParameterJdbcTemplate directory() {
+        return directory;
+    }
+
+    /**
+     * Moves the directory id sequence past the ids of the unsharded primary tables ('users',
+     * 'users_archive'), so users created with sharding on never take the id of a user
+     * {@link ShardRebalancer#importFromPrimary()} still has to import.
+     */
+    void reservePrimaryIds() {
+        long primaryMaxId = 0;
+        for (String table : List.of("users", "users_archive")) {
+            if (tableExists(directory, table)) {
+                primaryMaxId = Math.max(primaryMaxId, maxId(table));
+            }
+        }
+        if (primaryMaxId > maxId("user_directory")) {
+            directory.getJdbcTemplate().execute("ALTER TABLE user_directory ALTER COLUMN id RESTART WITH " + (primaryMaxId + 1));
+        }
+    }
+
+    static boolean tableExists(NamedParameterJdbcTemplate template, String table) {
+        try {
+            template.getJdbcTemplate().queryForObject("SELECT COUNT(*) FROM " + table + " WHERE 1 = 0", Long.class);
+            return true;
+        } catch (DataAccessException e) {
+            return false;
+        }
+    }
+
+    private long maxId(String table) {
+        Long max = directory.getJdbcTemplate().queryForObject("SELECT MAX(id) FROM " + table, Long.class);
+        return max == null ? 0 : max;
+    }
+
+    String recordedShard(Long id) {
+        List<String> recorded = directory.queryForList("SELECT shard FROM user_directory WHERE id = :id",
+                new MapSqlParameterSource("id", id), String.class);
+        return recorded.isEmpty() ? null : recorded.get(0);
+    }
+
+    static MapSqlParameterSource params(User user) {
+        LocalDate lastLogin = user.getLastLogin();
+        return new MapSqlParameterSource()
+                .addValue("id", user.getId())
+                .addValue("username", user.getUsername())
+                .addValue("password", user.getPassword())
+                .addValue("role", user.getRole())
+                .addValue("name", user.getName())
+                .addValue("email", user.getEmail())
+                .addValue("status", user.getStatus())
+                .addValue("lastLogin", lastLogin != null ? Date.valueOf(lastLogin) : null)
+                .addValue("address", user.getAddress())
+                .addValue("bio", user.getBio())
+                .addValue("phoneNumber", user.getPhoneNumber());
+    }
+
+    private void insert(User user) {
+        // The directory allocates the global id and enforces uniqueness across shards
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        directory.update("INSERT INTO user_directory (username, email, phone_number) "
+                + "VALUES (:username, :email, :phoneNumber)", params(user), keyHolder, new String[]{"id"});
+        Long id = keyHolder.getKey().longValue();
+        String shard = ring.shardFor(id);
+        user.setId(id);
+        try {
+            shards.get(shard).update(INSERT_USER, params(user));
+            directory.update("UPDATE user_directory SET shard = :shard WHERE id = :id",
+                    new MapSqlParameterSource("id", id).addValue("shard", shard));
+        } catch (RuntimeException e) {
+            // Compensate: no shard row, so no directory entry either
+            directory.update("DELETE FROM user_directory WHERE id = :id", new MapSqlParameterSource("id", id));
+            user.setId(null);
+            throw e;
+        }
+    }
+
+    /**
+     * Runs the call on the ring owner of this id, and on the shard recorded in the directory
+     * when the owner does not have the user (it has not been moved there yet).
+     */
+    private <T> T onOwner(Long id, Function<NamedParameterJdbcTemplate, T> call, Predicate<T> found) {
+        String owner = ring.shardFor(id);
+        T result = call.apply(shards.get(owner));
+        if (found.test(result)) {
+            return result;
+        }
+        String recorded = recordedShard(id);
+        if (recorded != null && !recorded.equals(owner) && shards.containsKey(recorded)) {
+            return call.apply(shards.get(recorded));
+        }
+        return result;
+    }
+
+    // The directory values of a user, as UPDATE_DIRECTORY parameters
+    private Optional<MapSqlParameterSource> directoryEntry(Long id) {
+        return directory.query("SELECT username, email, phone_number FROM user_directory WHERE id = :id",
+                new MapSqlParameterSource("id", id), (rs, rowNum) -> new MapSqlParameterSource("id", id)
+                        .addValue("username", rs.getString("username"))
+                        .addValue("email", rs.getString("email"))
+                        .addValue("phoneNumber", rs.getString("phone_number"))).stream().findFirst();
+    }
+
+    private Optional<Long> directoryId(String column, String value) {
+        if (value == null) {
+            return Optional.empty();
+        }
+        return directory.queryForList("SELECT id FROM user_directory WHERE " + column + " = :value",
+                new MapSqlParameterSource("value", value), Long.class).stream().findFirst();
+    }
+
+    private <T> List<T> scatter(Function<NamedParameterJdbcTemplate, List<T>> query) {
+        List<CompletableFuture<List<T>>> results = shards.values().stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> query.apply(shard), fanOut))
+                .toList();
+        List<T> merged = new ArrayList<>();
+        for (CompletableFuture<List<T>> result : results) {
+            try {
+                merged.addAll(result.join());
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        return merged;
+    }
+
+    private int scatterCount(Function<NamedParameterJdbcTemplate, Integer> statement) {
+        return scatter(shard -> List.of(statement.apply(shard))).stream().mapToInt(Integer::intValue).sum();
+    }
+
+    // Only the filters actually set end up in the SQL
+    private static String filterClause(String name, String role, String status, MapSqlParameterSource params) {
+        StringJoiner where = new StringJoiner(" AND ", " WHERE ", "").setEmptyValue("");
+        if (name != null) {
+            where.add("LOWER(name) LIKE :name");
+            params.addValue("name", "%" + name.toLowerCase() + "%");
+        }
+        if (role != null) {
+            where.add("role = :role");
+            params.addValue("role", role);
+        }
+        if (status != null) {
+            where.add("status = :status");
+            params.addValue("status", status);
+        }
+        return where.toString();
+    }
+
+    private static List<User> sortedById(List<User> users) {
+        users.sort(Comparator.comparing(User::getId));
+        return users;
+    }
+
+    @Override
+    public void close() {
+        fanOut.shutdown();
+        dataSources.values().forEach(dataSource -> {
+            if (dataSource instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception ignored) {
+                    // shutting down anyway
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,62 @@
+package com.itRoad.users_service.sharding;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * With sharding.enabled=true, replaces the JPA {@code UserRepository} with {@link ShardedUserRepository}.
+ * Note: with the fast-start (AOT) profile this condition is evaluated at build time.
+ */
+@Configuration
+@ConditionalOnProperty(name = "sharding.enabled", havingValue = "true")
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfig {
+
+    @Bean(destroyMethod = "close")
+    @Primary
+    public ShardedUserRepository shardedUserRepository(ShardingProperties properties, DataSource dataSource) {
+        if (properties.getShards().isEmpty()) {
+            throw new IllegalStateException("sharding.enabled=true but no sharding.shards configured");
+        }
+        Map<String, DataSource> shards = new LinkedHashMap<>();
+        for (ShardingProperties.Shard shard : properties.getShards()) {
+            HikariDataSource pool = new HikariDataSource();
+            pool.setPoolName("users-" + shard.getName());
+            pool.setJdbcUrl(shard.getUrl());
+            pool.setUsername(shard.getUsername());
+            pool.setPassword(shard.getPassword());
+            pool.setMaximumPoolSize(shard.getMaximumPoolSize());
+            shards.put(shard.getName(), pool);
+        }
+        return new ShardedUserRepository(shards, dataSource, properties.getVirtualNodes(),
+                properties.getFanOutThreads());
+    }
+
+    @Bean
+    public ShardRebalancer shardRebalancer(ShardedUserRepository repository, ShardingProperties properties) {
+        return new ShardRebalancer(repository, properties.getRebalanceBatchSize());
+    }
+
+    /**
+     * Runs {@link ShardRebalancer#importFromPrimary()} once the beans exist, before the web server
+     * starts: until a user is in the directory they cannot log in, admins included.
+     * Users already imported are skipped, so this only costs a directory lookup per batch later on.
+     */
+    @Bean
+    public SmartInitializingSingleton shardImportOnStartup(ShardRebalancer rebalancer, ShardingProperties properties) {
+        return () -> {
+            if (properties.isImportOnStartup()) {
+                rebalancer.importFromPrimary();
+            }
+        };
+    }
+}
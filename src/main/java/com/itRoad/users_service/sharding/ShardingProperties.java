@@ -0,0 +1,39 @@
+package com.itRoad.users_service.sharding;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * sharding.* settings. The user directory (global id / username / email lookup table)
+ * lives on the primary datasource, user rows live on the listed shards.
+ */
+@Data
+@ConfigurationProperties(prefix = "sharding")
+public class ShardingProperties {
+
+    private boolean enabled;
+
+    private int virtualNodes = 128;
+
+    // Threads used to query the shards in parallel (scatter-gather)
+    private int fanOutThreads = 8;
+
+    private int rebalanceBatchSize = 500;
+
+    // Logins only read the directory: import the primary users before serving requests
+    private boolean importOnStartup = true;
+
+    private List<Shard> shards = new ArrayList<>();
+
+    @Data
+    public static class Shard {
+        private String name;
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+    }
+}
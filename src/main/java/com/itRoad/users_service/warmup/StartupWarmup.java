@@ -0,0 +1,271 @@
+package com.itRoad.users_service.warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itRoad.users_service.controllers.UserController;
+import com.itRoad.users_service.datasource.InstrumentedDataSource;
+import com.itRoad.users_service.dto.UpdateUserRequest;
+import com.itRoad.users_service.dto.UserDTO;
+import com.itRoad.users_service.models.User;
+import com.itRoad.users_service.repositories.UserStore;
+import com.itRoad.users_service.security.JwtService;
+import com.itRoad.users_service.services.UserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs synthetic traffic once the application has started, so the first real requests
+ * do not pay for JIT compilation, Hibernate query plans, Jackson serializers and pool
+ * connection setup:
+ * <ol>
+ *     <li>opens connections up to the pool size,</li>
+ *     <li>runs the user lookups and filter queries through {@link UserService},</li>
+ *     <li>serializes {@link UserDTO} and reads request bodies with the MVC ObjectMapper,</li>
+ *     <li>calls the {@link UserController} search endpoints in-process, through method security,</li>
+ *     <li>sends HTTP requests to this instance through the full filter chain.</li>
+ * </ol>
+ * No real user is impersonated: requests and calls run as a synthetic subject that no
+ * account can have (longer than the 50 characters allowed for usernames).
+ * {@link WarmupHealthIndicator} keeps the readiness group OUT_OF_SERVICE until this is done
+ * or the time budget has expired, whichever comes first.
+ */
+@Component
+public class StartupWarmup {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupWarmup.class);
+
+    public enum State { PENDING, RUNNING, COMPLETED, BUDGET_EXPIRED, FAILED, DISABLED }
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserStore userStore;
+
+    @Autowired
+    private UserController userController;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private InstrumentedDataSource dataSource;
+
+    @Value("${warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${warmup.budget-seconds:30}")
+    private long budgetSeconds;
+
+    @Value("${warmup.prefill-connections:5}")
+    private int prefillConnections;
+
+    @Value("${warmup.query-iterations:50}")
+    private int queryIterations;
+
+    @Value("${warmup.serialization-iterations:2000}")
+    private int serializationIterations;
+
+    @Value("${warmup.http-requests:200}")
+    private int httpRequests;
+
+    private volatile State state = State.PENDING;
+    private volatile long deadlineNanos;
+    private volatile long durationMillis;
+    private volatile int port;
+
+    @EventListener
+    public void onWebServerInitialized(WebServerInitializedEvent event) {
+        // Ignore a separate management server, traffic goes to the application port
+        if (event.getApplicationContext().getServerNamespace() == null) {
+            port = event.getWebServer().getPort();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            state = State.DISABLED;
+            return;
+        }
+        deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(budgetSeconds);
+        state = State.RUNNING;
+        Thread thread = new Thread(this::run, "startup-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Ready once warm-up has finished in any way, or its budget is spent even if it is still running.
+     */
+    public boolean isReady() {
+        State current = state;
+        return current != State.PENDING
+                && (current != State.RUNNING || System.nanoTime() - deadlineNanos >= 0);
+    }
+
+    public State getState() {
+        return state == State.RUNNING && isReady() ? State.BUDGET_EXPIRED : state;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public long getBudgetSeconds() {
+        return budgetSeconds;
+    }
+
+    void run() {
+        long start = System.nanoTime();
+        State outcome;
+        try {
+            prefillConnectionPool();
+            Optional<User> sample = sampleUser();
+            String subject = "warmup-" + UUID.randomUUID() + "-" + UUID.randomUUID();
+            runQueries(sample, subject);
+            runSerialization(sample);
+            runControllers(subject);
+            runHttpRequests(subject);
+            outcome = expired() ? State.BUDGET_EXPIRED : State.COMPLETED;
+        } catch (Exception e) {
+            // A failed warm-up must not keep the instance out of rotation
+            logger.warn("Startup warm-up failed: {}", e.getMessage());
+            outcome = State.FAILED;
+        }
+        durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        state = outcome;
+        logger.info("Startup warm-up {} in {} ms", outcome, durationMillis);
+    }
+
+    // Holds several connections at once so the pool has to open them now, not on the first requests
+    private void prefillConnectionPool() throws SQLException {
+        int connections = Math.min(prefillConnections, dataSource.getPool().getMaximumPoolSize());
+        List<Connection> held = new ArrayList<>();
+        try {
+            for (int i = 0; i < connections && !expired(); i++) {
+                Connection connection = dataSource.getConnection();
+                held.add(connection);
+                connection.isValid(1);
+            }
+        } finally {
+            for (Connection connection : held) {
+                connection.close();
+            }
+        }
+    }
+
+    // Any existing user, found with the cheapest query available (keyset on the primary key)
+    private Optional<User> sampleUser() {
+        return userStore.findIdsByFilters(null, null, null, 0L, PageRequest.of(0, 1)).stream()
+                .findFirst()
+                .flatMap(userStore::findById);
+    }
+
+    // Read-only for the sample user: login lookups only ever see the synthetic subject
+    private void runQueries(Optional<User> sample, String subject) {
+        for (int i = 0; i < queryIterations && !expired(); i++) {
+            userService.loadUserForAuthentication(subject);
+            userService.getUsersByFilters(subject, null, null);
+            sample.ifPresent(user -> {
+                userService.getUserById(user.getId());
+                userService.getUserByUsername(user.getUsername());
+            });
+        }
+    }
+
+    private void runSerialization(Optional<User> sample) throws Exception {
+        UserDTO dto = sample.map(user -> userService.getUserById(user.getId())).orElseGet(StartupWarmup::syntheticUser);
+        for (int i = 0; i < serializationIterations && !expired(); i++) {
+            byte[] json = objectMapper.writeValueAsBytes(List.of(dto));
+            objectMapper.readTree(json);
+            objectMapper.readValue("{\"name\":\"warmup\",\"bio\":\"warmup\"}", UpdateUserRequest.class);
+        }
+    }
+
+    // Method security and the controllers, authenticated as the synthetic subject on this thread only
+    private void runControllers(String subject) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                subject, null, List.of(new SimpleGrantedAuthority("Adherant"))));
+        try {
+            for (int i = 0; i < queryIterations && !expired(); i++) {
+                userController.getUsersByFilters(subject, "all", "all");
+                userController.getUserFieldsByFilters(subject, "all", "id,username,name");
+            }
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    /**
+     * Requests to this instance through Tomcat and the security filters. The token names the
+     * synthetic subject, so the JWT filter parses it, finds no user and answers 401; it lives
+     * for the warm-up budget only and never leaves the loopback interface.
+     */
+    private void runHttpRequests(String subject) throws Exception {
+        if (port <= 0 || httpRequests <= 0) {
+            return;
+        }
+        String token = jwtService.generateToken(subject, "Adherant", TimeUnit.SECONDS.toMillis(budgetSeconds));
+        String base = "http://localhost:" + port;
+        List<HttpRequest> requests = List.of(
+                HttpRequest.newBuilder(URI.create(base + "/health")).build(),
+                authenticated(base + "/api/users/me", token),
+                authenticated(base + "/api/users/search?name=" + subject, token),
+                authenticated(base + "/api/users/me", "eyJhbGciOiJIUzI1NiJ9.eyJzdWIiOiJ3YXJtdXAifQ.invalid"));
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+        for (int i = 0; i < httpRequests && !expired(); i++) {
+            client.send(requests.get(i % requests.size()), HttpResponse.BodyHandlers.discarding());
+        }
+    }
+
+    private static HttpRequest authenticated(String url, String token) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Authorization", "Bearer " + token)
+                .timeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    private static UserDTO syntheticUser() {
+        UserDTO dto = new UserDTO();
+        dto.setId(0L);
+        dto.setUsername("warmup");
+        dto.setName("Warm Up");
+        dto.setEmail("warmup@example.com");
+        dto.setRole("Adherant");
+        dto.setStatus("Active");
+        dto.setLastLogin(LocalDate.now());
+        return dto;
+    }
+
+    private boolean expired() {
+        return System.nanoTime() - deadlineNanos >= 0;
+    }
+}
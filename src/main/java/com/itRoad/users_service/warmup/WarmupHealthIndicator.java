@@ -0,0 +1,27 @@
+package com.itRoad.users_service.warmup;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * 'warmup' health contributor, part of the readiness group (/actuator/health/readiness):
+ * OUT_OF_SERVICE while {@link StartupWarmup} runs within its budget, UP afterwards.
+ */
+@Component
+public class WarmupHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private StartupWarmup startupWarmup;
+
+    @Override
+    public Health health() {
+        Health.Builder builder = startupWarmup.isReady() ? Health.up() : Health.outOfService();
+        return builder
+                .withDetail("state", startupWarmup.getState())
+                .withDetail("durationMillis", startupWarmup.getDurationMillis())
+                .withDetail("budgetSeconds", startupWarmup.getBudgetSeconds())
+                .build();
+    }
+}
@@ -0,0 +1,27 @@
+-- Tables of the user archival job (UserArchiveService), PostgreSQL.
+-- The service does not create or alter tables (no spring.jpa.hibernate.ddl-auto), run this
+-- once per database before enabling archive.enabled:
+--   psql "$DATABASE_URL" -f src/main/resources/db/archive-schema.sql
+
+-- Cold copies of users moved out of 'users', same columns plus archived_at, same ids
+CREATE TABLE IF NOT EXISTS users_archive (
+    id           BIGINT       PRIMARY KEY,
+    username     VARCHAR(255) NOT NULL UNIQUE,
+    password     VARCHAR(255) NOT NULL,
+    role         VARCHAR(255) NOT NULL,
+    name         VARCHAR(255),
+    email        VARCHAR(255) UNIQUE,
+    status       VARCHAR(255),
+    last_login   DATE,
+    address      VARCHAR(255),
+    bio          VARCHAR(255),
+    phone_number VARCHAR(255) UNIQUE,
+    archived_at  TIMESTAMP(6) NOT NULL
+);
+
+-- Leases of scheduled jobs, so the archival runs on one instance at a time
+CREATE TABLE IF NOT EXISTS job_locks (
+    name         VARCHAR(255) PRIMARY KEY,
+    locked_until TIMESTAMP(6) NOT NULL,
+    locked_by    VARCHAR(255) NOT NULL
+);
@@ -0,0 +1,71 @@
+package com.itRoad.users_service;
+
+import com.itRoad.users_service.models.ArchivedUser;
+import com.itRoad.users_service.models.User;
+import com.itRoad.users_service.repositories.ArchivedUserRepository;
+import com.itRoad.users_service.repositories.UserRepository;
+import com.itRoad.users_service.security.JwtService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestComponent;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Users saved by a test, hot or archived. Import it in the test class and call
+ * {@link #deleteAll()} from an @AfterEach method.
+ */
+@TestComponent
+public class TestUsers {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ArchivedUserRepository archivedUserRepository;
+
+    @Autowired
+    private JwtService jwtService;
+
+    private final List<Long> ids = new ArrayList<>();
+
+    // Not saved: 'username' is also the name and the email prefix, the rest are the entity defaults
+    public static User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("secret");
+        user.setName(username);
+        user.setEmail(username + "@example.com");
+        return user;
+    }
+
+    public User save(User user) {
+        User saved = userRepository.save(user);
+        ids.add(saved.getId());
+        return saved;
+    }
+
+    public User save(String username) {
+        return save(user(username));
+    }
+
+    // Archived ids are chosen by the caller, use negative ones to stay clear of the hot table's
+    public ArchivedUser saveArchived(Long id, String username, String email, String phoneNumber, LocalDate lastLogin) {
+        ArchivedUser archived = archivedUserRepository.save(new ArchivedUser(id, username, "secret", "Adherant",
+                username, email, "Active", lastLogin, null, null, phoneNumber, LocalDateTime.now()));
+        ids.add(id);
+        return archived;
+    }
+
+    public String bearer(User user) {
+        return "Bearer " + jwtService.generateToken(user.getUsername(), user.getRole(), 60_000);
+    }
+
+    public void deleteAll() {
+        userRepository.deleteAllByIdInBatch(ids);
+        archivedUserRepository.deleteAllByIdInBatch(ids);
+        ids.clear();
+    }
+}
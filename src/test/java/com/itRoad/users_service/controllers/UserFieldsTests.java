@@ -0,0 +1,96 @@
+package com.itRoad.users_service.controllers;
+
+import com.itRoad.users_service.TestUsers;
+import com.itRoad.users_service.models.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Import(TestUsers.class)
+class UserFieldsTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    private String token;
+
+    @BeforeEach
+    void createUsers() {
+        token = testUsers.bearer(save("fields-admin", "Admin", "Fields Admin"));
+        save("fields-member", "Adherant", "Fields Member");
+    }
+
+    @AfterEach
+    void deleteUsers() {
+        testUsers.deleteAll();
+    }
+
+    @Test
+    void listReturnsOnlyRequestedFields() throws Exception {
+        mockMvc.perform(get("/api/users").param("fields", "id, username,id").header("Authorization", token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].length()").value(2))
+                .andExpect(jsonPath("$[0].username").exists())
+                .andExpect(jsonPath("$[0].email").doesNotExist());
+    }
+
+    @Test
+    void searchAppliesFiltersToTheProjection() throws Exception {
+        mockMvc.perform(get("/api/users/search")
+                        .param("role", "Adherant").param("fields", "name,lastLogin")
+                        .header("Authorization", token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].name").value("Fields Member"))
+                .andExpect(jsonPath("$[0].lastLogin").value("2025-01-31"))
+                .andExpect(jsonPath("$[0].length()").value(2));
+    }
+
+    @Test
+    void listsAndSearchLeaveTheProfileOut() throws Exception {
+        for (String path : List.of("/api/users", "/api/users/search")) {
+            mockMvc.perform(get(path).header("Authorization", token))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$[0].username").exists())
+                    .andExpect(jsonPath("$[0]", not(hasKey("bio"))))
+                    .andExpect(jsonPath("$[0]", not(hasKey("address"))));
+        }
+    }
+
+    @Test
+    void unknownFieldsAreRejected() throws Exception {
+        mockMvc.perform(get("/api/users").param("fields", "id,password").header("Authorization", token))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").exists());
+        mockMvc.perform(get("/api/users/search").param("fields", " , ").header("Authorization", token))
+                .andExpect(status().isBadRequest());
+    }
+
+    private User save(String username, String role, String name) {
+        User user = TestUsers.user(username);
+        user.setRole(role);
+        user.setName(name);
+        user.setLastLogin(LocalDate.of(2025, 1, 31));
+        return testUsers.save(user);
+    }
+}
@@ -0,0 +1,158 @@
+package com.itRoad.users_service.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConnectionPoolMonitorTests {
+
+    private static final long INJECTED_LATENCY_MS = 20;
+
+    private InstrumentedDataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setJdbcUrl("jdbc:h2:mem:pool-test;DB_CLOSE_DELAY=-1");
+        pool.setUsername("sa");
+        pool.setMaximumPoolSize(2);
+        dataSource = new InstrumentedDataSource(pool, INJECTED_LATENCY_MS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    void burstAgainstSlowLinkGrowsThePool() throws Exception {
+        ConnectionPoolMonitor monitor = new ConnectionPoolMonitor(dataSource, null, true, 2, 16, 5, 500, 0.1, 3);
+        monitor.sample();
+
+        ExecutorService clients = Executors.newFixedThreadPool(12);
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            futures.add(clients.submit(() -> {
+                while (running.get()) {
+                    try (Connection connection = dataSource.getConnection();
+                         PreparedStatement statement = connection.prepareStatement("SELECT 1")) {
+                        statement.execute();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        try {
+            PoolSnapshot snapshot = null;
+            for (int i = 0; i < 5; i++) {
+                TimeUnit.MILLISECONDS.sleep(200);
+                snapshot = monitor.sample();
+            }
+
+            assertTrue(snapshot.meanAcquireMillis() > 0, "acquire wait is measured");
+            assertTrue(snapshot.acquiresPerSecond() > 0, "acquire rate is measured");
+            assertTrue(dataSource.getPool().getMaximumPoolSize() > 2,
+                    "pool grew from 2 to " + dataSource.getPool().getMaximumPoolSize());
+        } finally {
+            running.set(false);
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+            clients.shutdown();
+        }
+
+        // Round trip is probed on an idle connection and includes the injected latency
+        PoolSnapshot idle = monitor.sample();
+        assertTrue(idle.roundTripMillis() >= INJECTED_LATENCY_MS, "rtt " + idle.roundTripMillis());
+        assertFalse(idle.throttled());
+    }
+
+    @Test
+    void slowRoundTripIsReportedAsThrottlingAfterConsecutiveWindows() throws Exception {
+        ConnectionPoolMonitor monitor = new ConnectionPoolMonitor(dataSource, null, true, 2, 16, 5,
+                INJECTED_LATENCY_MS / 2.0, 0.1, 3);
+        try (Connection connection = dataSource.getConnection()) {
+            connection.isValid(1);
+        }
+
+        assertFalse(monitor.sample().throttled());
+        assertFalse(monitor.sample().throttled());
+        assertTrue(monitor.sample().throttled());
+        assertTrue(monitor.isThrottled());
+    }
+
+    @Test
+    void singleAcquireFailureDoesNotThrottle() throws Exception {
+        HikariDataSource tiny = new HikariDataSource();
+        tiny.setJdbcUrl("jdbc:h2:mem:pool-failure-test;DB_CLOSE_DELAY=-1");
+        tiny.setUsername("sa");
+        tiny.setMaximumPoolSize(1);
+        tiny.setConnectionTimeout(250);
+        try (InstrumentedDataSource failing = new InstrumentedDataSource(tiny, 0)) {
+            ConnectionPoolMonitor monitor = new ConnectionPoolMonitor(failing, null, false, 1, 1, 5, 500, 0.1, 3);
+            try (Connection held = failing.getConnection()) {
+                assertThrows(SQLException.class, failing::getConnection);
+            }
+            for (int i = 0; i < 20; i++) {
+                failing.getConnection().close();
+            }
+
+            // 1 failure out of 22 acquires in the window
+            PoolSnapshot snapshot = monitor.sample();
+            assertEquals(1, snapshot.acquireFailures());
+            assertFalse(snapshot.throttled());
+        }
+    }
+
+    @Test
+    void sizerBacksOffWhenThrottled() {
+        AdaptivePoolSizer sizer = new AdaptivePoolSizer(2, 20, 20);
+        assertEquals(8, sizer.nextSize(snapshot(16, 0, 0, 0, 0, 30, true)));
+        assertEquals(2, sizer.nextSize(snapshot(3, 0, 0, 0, 0, 30, true)));
+    }
+
+    @Test
+    void sizerGrowsToLittlesLawEstimateOnHighLatencyLink() {
+        AdaptivePoolSizer sizer = new AdaptivePoolSizer(2, 20, 20);
+        // 200 checkouts/s at 40 ms per round trip needs about 16 connections
+        assertEquals(16, sizer.nextSize(snapshot(4, 50, 200, 3, 0, 40, false)));
+        // Same load on a fast link only needs a step up
+        assertEquals(5, sizer.nextSize(snapshot(4, 50, 200, 1, 0, 1, false)));
+        assertEquals(20, sizer.nextSize(snapshot(18, 50, 1000, 8, 0, 40, false)));
+    }
+
+    @Test
+    void sizerShrinksOnlyAfterSeveralCalmWindows() {
+        AdaptivePoolSizer sizer = new AdaptivePoolSizer(2, 20, 20);
+        PoolSnapshot calm = snapshot(10, 0, 5, 0, 9, 1, false);
+        for (int i = 0; i < 4; i++) {
+            assertEquals(10, sizer.nextSize(calm));
+        }
+        assertEquals(9, sizer.nextSize(calm));
+    }
+
+    private static PoolSnapshot snapshot(int maximumPoolSize, double meanAcquireMillis, double acquiresPerSecond,
+                                         int awaiting, int idle, double roundTripMillis, boolean throttled) {
+        return new PoolSnapshot(meanAcquireMillis, meanAcquireMillis, acquiresPerSecond, 0,
+                maximumPoolSize - idle, idle, maximumPoolSize, awaiting, roundTripMillis, maximumPoolSize, throttled);
+    }
+}
@@ -0,0 +1,61 @@
+package com.itRoad.users_service.repositories;
+
+import com.itRoad.users_service.models.User;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// The PostgreSQL branch of patch: H2 cannot run UPDATE ... RETURNING, so the template is mocked
+class UserJdbcSupportTests {
+
+    private static final String RETURNING_SQL = "UPDATE users SET name = :name, bio = :bio WHERE id = :id RETURNING "
+            + UserJdbcSupport.SELECT_COLUMNS;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void returningBranchWritesAndReadsInOneStatement() {
+        NamedParameterJdbcTemplate jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+        User updated = new User();
+        updated.setId(7L);
+        when(jdbcTemplate.query(eq(RETURNING_SQL), any(SqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(List.of(updated));
+
+        Map<String, Object> changes = new LinkedHashMap<>();
+        changes.put("name", "New");
+        changes.put("bio", "hello");
+        assertEquals(updated, UserJdbcSupport.patch(jdbcTemplate, true, 7L, changes).orElseThrow());
+
+        ArgumentCaptor<SqlParameterSource> params = ArgumentCaptor.forClass(SqlParameterSource.class);
+        verify(jdbcTemplate).query(eq(RETURNING_SQL), params.capture(), eq(UserJdbcSupport.USER_ROW_MAPPER));
+        assertEquals(7L, params.getValue().getValue("id"));
+        assertEquals("hello", params.getValue().getValue("bio"));
+        verify(jdbcTemplate, never()).update(anyString(), any(SqlParameterSource.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void returningBranchWithoutARowIsEmpty() {
+        NamedParameterJdbcTemplate jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+        when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(List.of());
+
+        assertTrue(UserJdbcSupport.patch(jdbcTemplate, true, 7L, Map.of("name", "New")).isEmpty());
+    }
+}
@@ -0,0 +1,206 @@
+package com.itRoad.users_service.security;
+
+import com.itRoad.users_service.models.User;
+import com.itRoad.users_service.services.UserService;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JwtAuthenticationFilterTests {
+
+    private static final String SECRET = "testSecretKeyThatIsAtLeast32CharactersLongForHS256";
+
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        userService = mock(UserService.class);
+        User alice = new User();
+        alice.setId(1L);
+        alice.setUsername("alice");
+        alice.setRole("Adherant");
+        when(userService.loadUserForAuthentication("alice")).thenReturn(Optional.of(alice));
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void validTokenAuthenticates() throws Exception {
+        JwtAuthenticationFilter filter = filter(true);
+
+        MockHttpServletResponse response = call(filter, token("alice", SECRET, 60_000));
+
+        assertEquals(200, response.getStatus());
+        assertNotNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    void garbageIsRejectedBeforeParsing() throws Exception {
+        JwtAuthenticationFilter filter = filter(true);
+
+        for (String garbage : List.of("x", "not.a.jwt", "eyJhbGciOi.." , "eyJ" + "a".repeat(10_000) + ".b.c", "eyJa.b.c.d")) {
+            MockHttpServletResponse response = call(filter, garbage);
+            assertEquals(401, response.getStatus());
+            assertEquals("{\"error\": \"Invalid token\"}", response.getContentAsString());
+        }
+        verify(userService, never()).loadUserForAuthentication(anyString());
+        assertEquals(0, cache(filter).size(), "structural rejections are not cached");
+    }
+
+    @Test
+    void rejectedTokensAreRememberedWithTheirReason() throws Exception {
+        JwtAuthenticationFilter filter = filter(true);
+        String forged = token("alice", "anotherSecretKeyThatIsAtLeast32CharactersLong!!", 60_000);
+        String expired = token("alice", SECRET, -60_000);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("{\"error\": \"Invalid token\"}", call(filter, forged).getContentAsString());
+            assertEquals("{\"error\": \"Token expired\"}", call(filter, expired).getContentAsString());
+        }
+
+        assertEquals(RejectedTokenCache.Reason.INVALID, cache(filter).lookup(forged));
+        assertEquals(RejectedTokenCache.Reason.EXPIRED, cache(filter).lookup(expired));
+        verify(userService, never()).loadUserForAuthentication(anyString());
+    }
+
+    @Test
+    void lookupFailureIsRejectedButNotRemembered() throws Exception {
+        JwtAuthenticationFilter filter = filter(true);
+        when(userService.loadUserForAuthentication("bob")).thenThrow(new IllegalStateException("database down"));
+        String token = token("bob", SECRET, 60_000);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(401, call(filter, token).getStatus());
+        }
+        assertNull(cache(filter).lookup(token));
+    }
+
+    @Test
+    void structuralCheckAcceptsRealTokens() {
+        assertTrue(JwtService.isStructurallyValid(token("alice", SECRET, 60_000)));
+        assertFalse(JwtService.isStructurallyValid("eyJhbGciOiJIUzI1NiJ9.e30"));
+        assertFalse(JwtService.isStructurallyValid("eyJhbGciOiJIUzI1NiJ9.e30.sig nature"));
+    }
+
+    /**
+     * Requests per second the filter sustains under an invalid-token flood.
+     * Run with: mvn test -Dtest=JwtAuthenticationFilterTests -Dbenchmark=true
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void invalidTokenFloodBenchmark() throws Exception {
+        String forged = token("alice", "anotherSecretKeyThatIsAtLeast32CharactersLong!!", 60_000);
+        String expired = token("alice", SECRET, -60_000);
+        String garbage = "definitely-not-a-token";
+
+        System.out.println("Invalid-token flood, 4 threads, requests/s:");
+        System.out.printf("  garbage                   %,12.0f%n", throughput(filter(true), i -> garbage));
+        System.out.printf("  forged, negative cache    %,12.0f%n", throughput(filter(true), i -> forged));
+        System.out.printf("  forged, no cache          %,12.0f%n", throughput(filter(false), i -> forged));
+        System.out.printf("  expired, negative cache   %,12.0f%n", throughput(filter(true), i -> expired));
+        System.out.printf("  expired, no cache         %,12.0f%n", throughput(filter(false), i -> expired));
+        AtomicInteger sequence = new AtomicInteger();
+        System.out.printf("  distinct forged (misses)  %,12.0f%n", throughput(filter(true),
+                i -> forged.substring(0, forged.length() - 8) + String.format("%08d", sequence.getAndIncrement())));
+    }
+
+    private double throughput(JwtAuthenticationFilter filter, IntFunction<String> tokens)
+            throws Exception {
+        int threads = 4;
+        int perThread = 50_000;
+        // Warm up the JIT before measuring
+        for (int i = 0; i < 20_000; i++) {
+            call(filter, tokens.apply(i));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        assertEquals(401, call(filter, tokens.apply(i)).getStatus());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.MINUTES);
+            }
+            return threads * perThread / ((System.nanoTime() - start) / 1e9);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private JwtAuthenticationFilter filter(boolean negativeCache) {
+        JwtService jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET);
+        ReflectionTestUtils.invokeMethod(jwtService, "init");
+
+        RejectedTokenCache cache = new RejectedTokenCache();
+        ReflectionTestUtils.setField(cache, "enabled", negativeCache);
+        ReflectionTestUtils.setField(cache, "maxSize", 10_000);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 300L);
+
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter();
+        ReflectionTestUtils.setField(filter, "jwtService", jwtService);
+        ReflectionTestUtils.setField(filter, "userService", userService);
+        ReflectionTestUtils.setField(filter, "rejectedTokenCache", cache);
+        return filter;
+    }
+
+    private static RejectedTokenCache cache(JwtAuthenticationFilter filter) {
+        return (RejectedTokenCache) ReflectionTestUtils.getField(filter, "rejectedTokenCache");
+    }
+
+    private static MockHttpServletResponse call(JwtAuthenticationFilter filter, String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users/me");
+        request.addHeader("Authorization", "Bearer " + token);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private static String token(String subject, String secret, long expiresInMillis) {
+        return Jwts.builder()
+                .subject(subject)
+                .expiration(new Date(System.currentTimeMillis() + expiresInMillis))
+                .signWith(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+    }
+}
@@ -0,0 +1,78 @@
+package com.itRoad.users_service.security;
+
+import com.itRoad.users_service.datasource.ConnectionPoolMonitor;
+import com.itRoad.users_service.datasource.PoolSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LoadShedderTests {
+
+    private ConnectionPoolMonitor monitor;
+    private LoadShedder loadShedder;
+
+    @BeforeEach
+    void setUp() {
+        monitor = mock(ConnectionPoolMonitor.class);
+        loadShedder = new LoadShedder();
+        ReflectionTestUtils.setField(loadShedder, "connectionPoolMonitor", monitor);
+        ReflectionTestUtils.setField(loadShedder, "enabled", true);
+        ReflectionTestUtils.setField(loadShedder, "thresholdMs", 200.0);
+        ReflectionTestUtils.setField(loadShedder, "step", 0.2);
+        ReflectionTestUtils.setField(loadShedder, "maxFraction", 0.9);
+    }
+
+    @Test
+    void slowAcquiresRampUpToTheMaximumAndSomeRequestsStillPass() {
+        for (int i = 0; i < 10; i++) {
+            sample(500, 50, 4, false);
+        }
+        assertEquals(0.9, loadShedder.getFraction(), 1e-9);
+
+        long shed = IntStream.range(0, 10_000).filter(i -> loadShedder.shouldShed()).count();
+        assertEquals(9_000, shed, 300);
+    }
+
+    @Test
+    void windowWithoutAcquiresDoesNotEndSheddingWhileRequestsQueue() {
+        sample(500, 50, 4, false);
+        sample(500, 50, 4, false);
+        double shedding = loadShedder.getFraction();
+
+        // Nothing acquired a connection in this window: the mean of 0 ms says nothing
+        sample(0, 0, 4, false);
+        assertEquals(shedding, loadShedder.getFraction(), 1e-9);
+
+        // Back off gradually once nothing queues and acquires are fast
+        sample(10, 50, 0, false);
+        assertEquals(shedding / 2, loadShedder.getFraction(), 1e-9);
+        for (int i = 0; i < 3; i++) {
+            sample(10, 50, 0, false);
+        }
+        assertEquals(0, loadShedder.getFraction());
+    }
+
+    @Test
+    void throttledPoolerShedsOnlyWhileRequestsQueue() {
+        for (int i = 0; i < 5; i++) {
+            sample(20, 50, 0, true);
+        }
+        assertEquals(0, loadShedder.getFraction());
+
+        sample(20, 50, 3, true);
+        assertTrue(loadShedder.getFraction() > 0);
+    }
+
+    private void sample(double meanAcquireMillis, double acquiresPerSecond, int awaiting, boolean throttled) {
+        when(monitor.lastSnapshot()).thenReturn(new PoolSnapshot(meanAcquireMillis, meanAcquireMillis,
+                acquiresPerSecond, 0, 5, 0, 5, awaiting, 10, 5, throttled));
+        loadShedder.sample();
+    }
+}
@@ -0,0 +1,140 @@
+package com.itRoad.users_service.security;
+
+import com.itRoad.users_service.models.User;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RateLimitFilterTests {
+
+    private LoadShedder loadShedder;
+    private RateLimitFilter rateLimitFilter;
+    private UserRateLimitFilter userRateLimitFilter;
+
+    @BeforeEach
+    void setUp() {
+        loadShedder = mock(LoadShedder.class);
+
+        rateLimitFilter = new RateLimitFilter();
+        ReflectionTestUtils.setField(rateLimitFilter, "loadShedder", loadShedder);
+        ReflectionTestUtils.setField(rateLimitFilter, "enabled", true);
+        ReflectionTestUtils.setField(rateLimitFilter, "anonymousCapacity", 3);
+        ReflectionTestUtils.setField(rateLimitFilter, "anonymousRefillPerSecond", 0.1);
+        ReflectionTestUtils.setField(rateLimitFilter, "ipCapacity", 5);
+        ReflectionTestUtils.setField(rateLimitFilter, "ipRefillPerSecond", 0.1);
+        ReflectionTestUtils.setField(rateLimitFilter, "maxTrackedClients", 100);
+        rateLimitFilter.init();
+
+        userRateLimitFilter = new UserRateLimitFilter();
+        ReflectionTestUtils.setField(userRateLimitFilter, "enabled", true);
+        ReflectionTestUtils.setField(userRateLimitFilter, "readCapacity", 4);
+        ReflectionTestUtils.setField(userRateLimitFilter, "readRefillPerSecond", 0.1);
+        ReflectionTestUtils.setField(userRateLimitFilter, "writeCapacity", 2);
+        ReflectionTestUtils.setField(userRateLimitFilter, "writeRefillPerSecond", 0.1);
+        ReflectionTestUtils.setField(userRateLimitFilter, "maxTrackedClients", 100);
+        userRateLimitFilter.init();
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void anonymousClientGets429WithRetryAfterAfterTheBurst() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, call(rateLimitFilter, request("GET", "10.0.0.1", null)).getStatus());
+        }
+        MockHttpServletResponse limited = call(rateLimitFilter, request("GET", "10.0.0.1", null));
+        assertEquals(429, limited.getStatus());
+        assertEquals("10", limited.getHeader("Retry-After"));
+
+        // Other clients have their own bucket
+        assertEquals(200, call(rateLimitFilter, request("GET", "10.0.0.2", null)).getStatus());
+    }
+
+    @Test
+    void requestsWithATokenAreLimitedPerIpBeforeVerification() throws Exception {
+        // Invalid tokens never reach the JWT filter once the IP has spent its bucket
+        for (int i = 0; i < 5; i++) {
+            assertEquals(200, call(rateLimitFilter, request("GET", "10.0.0.3", "Bearer forged-" + i)).getStatus());
+        }
+        assertEquals(429, call(rateLimitFilter, request("GET", "10.0.0.3", "Bearer forged-5")).getStatus());
+    }
+
+    @Test
+    void shedRequestsGet503ButHealthChecksPass() throws Exception {
+        when(loadShedder.shouldShed()).thenReturn(true);
+
+        MockHttpServletResponse shed = call(rateLimitFilter, request("GET", "10.0.0.4", "Bearer token"));
+        assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, shed.getStatus());
+        assertEquals("1", shed.getHeader("Retry-After"));
+
+        MockHttpServletRequest health = request("GET", "10.0.0.4", null);
+        health.setServletPath("/actuator/health");
+        assertEquals(200, call(rateLimitFilter, health).getStatus());
+    }
+
+    @Test
+    void authenticatedUsersHaveSeparateReadAndWriteBuckets() throws Exception {
+        User alice = new User();
+        alice.setId(1L);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(alice, null, List.of()));
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals(200, call(userRateLimitFilter, request("PUT", "10.0.0.5", null)).getStatus());
+        }
+        assertEquals(429, call(userRateLimitFilter, request("PUT", "10.0.0.5", null)).getStatus());
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(200, call(userRateLimitFilter, request("GET", "10.0.0.5", null)).getStatus());
+        }
+        assertEquals(429, call(userRateLimitFilter, request("GET", "10.0.0.5", null)).getStatus());
+    }
+
+    @Test
+    void unauthenticatedRequestsPassThePerUserFilter() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            assertEquals(200, call(userRateLimitFilter, request("PUT", "10.0.0.6", null)).getStatus());
+        }
+    }
+
+    private static MockHttpServletRequest request(String method, String remoteAddr, String authorization) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/api/users");
+        request.setServletPath("/api/users");
+        request.setRemoteAddr(remoteAddr);
+        if (authorization != null) {
+            request.addHeader("Authorization", authorization);
+        }
+        return request;
+    }
+
+    private static MockHttpServletResponse call(jakarta.servlet.Filter filter, MockHttpServletRequest request)
+            throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, response, chain);
+        if (response.getStatus() == 200) {
+            assertNotNull(chain.getRequest(), "a request that is let through reaches the chain");
+        } else {
+            assertNull(chain.getRequest(), "a rejected request stops here");
+        }
+        return response;
+    }
+}
@@ -0,0 +1,78 @@
+package com.itRoad.users_service.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTests {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void grantsTheBurstThenAsksToWaitOneEmissionInterval() {
+        TokenBucket bucket = new TokenBucket(5, 10); // 5 tokens, one every 100 ms
+        long now = SECOND;
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, bucket.tryAcquire(now), "token " + i);
+        }
+        assertEquals(SECOND / 10, bucket.tryAcquire(now));
+        // A rejected attempt does not consume anything
+        assertEquals(SECOND / 10, bucket.tryAcquire(now));
+    }
+
+    @Test
+    void refillsAtTheConfiguredRate() {
+        TokenBucket bucket = new TokenBucket(5, 10);
+        long now = SECOND;
+        for (int i = 0; i < 5; i++) {
+            bucket.tryAcquire(now);
+        }
+
+        now += SECOND / 10;
+        assertEquals(0, bucket.tryAcquire(now));
+        assertTrue(bucket.tryAcquire(now) > 0);
+
+        // After a long idle period the bucket is full again, but never above capacity
+        now += 10 * SECOND;
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, bucket.tryAcquire(now));
+        }
+        assertTrue(bucket.tryAcquire(now) > 0);
+    }
+
+    @Test
+    void isFullOnceEveryTokenIsBack() {
+        TokenBucket bucket = new TokenBucket(2, 10);
+        long now = SECOND;
+        assertTrue(bucket.isFull(now));
+
+        bucket.tryAcquire(now);
+        assertFalse(bucket.isFull(now));
+        assertFalse(bucket.isFull(now + SECOND / 20));
+        assertTrue(bucket.isFull(now + SECOND / 10));
+    }
+
+    @Test
+    void registrySweepsOnlyFullBucketsWhenOverTheLimit() {
+        TokenBucketRegistry registry = new TokenBucketRegistry(1, 1, 2);
+        long now = SECOND;
+        registry.tryAcquire("a", now);
+        registry.tryAcquire("b", now);
+        assertEquals(2, registry.size());
+
+        // 'a' and 'b' are still empty: nothing to evict, the new client is added anyway
+        registry.tryAcquire("c", now);
+        assertEquals(3, registry.size());
+
+        // Two seconds later all have refilled and are swept before 'd' is added
+        registry.tryAcquire("d", now + 2 * SECOND);
+        assertEquals(1, registry.size());
+        // The sweep kept no state: 'a' starts with a full bucket
+        assertEquals(0, registry.tryAcquire("a", now + 2 * SECOND));
+    }
+}
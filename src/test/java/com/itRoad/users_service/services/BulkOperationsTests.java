@@ -0,0 +1,161 @@
+package com.itRoad.users_service.services;
+
+import com.itRoad.users_service.Exceptions.BadRequestException;
+import com.itRoad.users_service.TestUsers;
+import com.itRoad.users_service.dto.BulkOperationResult;
+import com.itRoad.users_service.dto.BulkUserRequest;
+import com.itRoad.users_service.dto.UserFilter;
+import com.itRoad.users_service.models.ArchivedUser;
+import com.itRoad.users_service.models.User;
+import com.itRoad.users_service.repositories.ArchivedUserRepository;
+import com.itRoad.users_service.repositories.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "bulk.chunk-size=7")
+@AutoConfigureMockMvc
+@Import(TestUsers.class)
+class BulkOperationsTests {
+
+    private static final int USERS = 20;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ArchivedUserRepository archivedUserRepository;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    // Every chunk runs in its own TransactionTemplate transaction
+    @MockitoSpyBean
+    private PlatformTransactionManager transactionManager;
+
+    private List<User> users;
+
+    @BeforeEach
+    void createUsers() {
+        users = IntStream.rangeClosed(1, USERS).mapToObj(i -> testUsers.save("bulk-user-" + i)).toList();
+        clearInvocations(transactionManager);
+    }
+
+    @AfterEach
+    void deleteUsers() {
+        testUsers.deleteAll();
+    }
+
+    @Test
+    void idListIsAppliedInChunks() {
+        List<Long> ids = new ArrayList<>(ids());
+        ids.addAll(ids.subList(0, 5)); // duplicates are dropped
+
+        assertEquals(USERS, userService.bulkUpdateStatus(new BulkUserRequest(ids, null, "Inactive", false)).getAffectedRows());
+
+        verify(transactionManager, times(3)).getTransaction(any(TransactionTemplate.class));
+        assertEquals(USERS, countWithStatus("Inactive"));
+    }
+
+    @Test
+    void filterIsWalkedWithAKeysetCursor() {
+        // The update changes the filtered column, the id cursor still visits every match once
+        UserFilter filter = new UserFilter("bulk-user", null, "Active");
+        assertEquals(USERS, userService.bulkUpdateStatus(new BulkUserRequest(null, filter, "Inactive", false)).getAffectedRows());
+
+        verify(transactionManager, times(3)).getTransaction(any(TransactionTemplate.class));
+        assertEquals(USERS, countWithStatus("Inactive"));
+    }
+
+    @Test
+    void bulkDeleteNeverDeletesTheCaller() {
+        Long callerId = users.get(0).getId();
+        UserFilter filter = new UserFilter("bulk-user", null, null);
+
+        assertEquals(USERS - 1, userService.bulkDelete(new BulkUserRequest(null, filter, null, false), callerId).getAffectedRows());
+        assertTrue(userRepository.findById(callerId).isPresent());
+        assertEquals(0, userService.bulkDelete(new BulkUserRequest(List.of(callerId), null, null, false), callerId).getAffectedRows());
+    }
+
+    @Test
+    void filterWithoutCriteriaNeedsExplicitAll() {
+        BulkUserRequest everyone = new BulkUserRequest(null, new UserFilter(null, "all", null), null, false);
+        assertThrows(BadRequestException.class, () -> userService.bulkDelete(everyone, users.get(0).getId()));
+        assertEquals(USERS, userRepository.findAllById(ids()).size());
+
+        everyone.setAll(true);
+        everyone.setValue("Active");
+        assertTrue(userService.bulkUpdateStatus(everyone).getAffectedRows() >= USERS);
+    }
+
+    @Test
+    void archivedTargetsClashingWithHotUsersAreSkippedAndReported() {
+        ArchivedUser clashing = testUsers.saveArchived(-20L, "bulk-user-archived", users.get(0).getEmail(), null, null);
+
+        BulkOperationResult result = userService.bulkUpdateStatus(
+                new BulkUserRequest(null, new UserFilter("bulk-user", null, null), "Inactive", false));
+
+        assertEquals(USERS, result.getAffectedRows());
+        assertEquals(List.of(clashing.getId()), result.getConflictingIds());
+        assertTrue(archivedUserRepository.existsById(clashing.getId()));
+    }
+
+    @Test
+    void bulkEndpointsAreOpenToAdminsThroughTheFilterChain() throws Exception {
+        User admin = users.get(0);
+        admin.setRole("Admin");
+        userRepository.save(admin);
+        String body = "{\"ids\": [" + users.get(1).getId() + "], \"value\": \"Inactive\"}";
+
+        mockMvc.perform(put("/api/users/bulk/status").contentType(MediaType.APPLICATION_JSON).content(body)
+                        .header("Authorization", testUsers.bearer(users.get(2))))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(put("/api/users/bulk/status").contentType(MediaType.APPLICATION_JSON).content(body)
+                        .header("Authorization", testUsers.bearer(admin)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.affectedRows").value(1));
+        mockMvc.perform(post("/api/users/bulk/delete").contentType(MediaType.APPLICATION_JSON).content(body)
+                        .header("Authorization", testUsers.bearer(admin)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.affectedRows").value(1));
+    }
+
+    private List<Long> ids() {
+        return users.stream().map(User::getId).toList();
+    }
+
+    private long countWithStatus(String status) {
+        return userRepository.findAllById(ids()).stream().filter(user -> status.equals(user.getStatus())).count();
+    }
+}
@@ -0,0 +1,131 @@
+package com.itRoad.users_service.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTests {
+
+    private static final int CALLERS = 64;
+
+    @Test
+    void thunderingHerdSharesOneQuery() throws Exception {
+        SingleFlight<Long, String> flight = new SingleFlight<>();
+        AtomicInteger queries = new AtomicInteger();
+        CountDownLatch arrived = new CountDownLatch(CALLERS);
+
+        List<String> results = runConcurrently(CALLERS, arrived, () -> flight.execute(42L, () -> {
+            queries.incrementAndGet();
+            await(arrived);
+            sleep(100); // simulated database round trip, long enough for every caller to join
+            return "user-42";
+        }));
+
+        results.forEach(result -> assertEquals("user-42", result));
+        assertEquals(1, queries.get());
+    }
+
+    @Test
+    void errorIsPropagatedToEveryWaitingCaller() throws Exception {
+        SingleFlight<Long, String> flight = new SingleFlight<>();
+        IllegalStateException failure = new IllegalStateException("database down");
+        CountDownLatch arrived = new CountDownLatch(CALLERS);
+        AtomicInteger failures = new AtomicInteger();
+
+        runConcurrently(CALLERS, arrived, () -> {
+            try {
+                return flight.execute(7L, () -> {
+                    await(arrived);
+                    sleep(50);
+                    throw failure;
+                });
+            } catch (IllegalStateException e) {
+                assertSame(failure, e);
+                failures.incrementAndGet();
+                return null;
+            }
+        });
+
+        assertEquals(CALLERS, failures.get());
+        // A failed flight is not remembered
+        assertEquals("recovered", flight.execute(7L, () -> "recovered"));
+    }
+
+    @Test
+    void forgetStartsAFreshQueryForLaterCallers() throws Exception {
+        SingleFlight<Long, String> flight = new SingleFlight<>();
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch releaseLeader = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> stale = executor.submit(() -> flight.execute(1L, () -> {
+                leaderStarted.countDown();
+                await(releaseLeader);
+                return "before-write";
+            }));
+            assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+
+            // A write happened: callers arriving now must not join the old query
+            flight.forget(1L);
+            assertEquals("after-write", flight.execute(1L, () -> "after-write"));
+
+            releaseLeader.countDown();
+            assertEquals("before-write", stale.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static <T> List<T> runConcurrently(int callers, CountDownLatch arrived, Callable<T> call)
+            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    arrived.countDown();
+                    return call.call();
+                }));
+            }
+            start.countDown();
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get(10, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
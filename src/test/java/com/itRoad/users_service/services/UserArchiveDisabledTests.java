@@ -0,0 +1,69 @@
+package com.itRoad.users_service.services;
+
+import com.itRoad.users_service.Exceptions.UserNotFoundException;
+import com.itRoad.users_service.TestUsers;
+import com.itRoad.users_service.dto.BulkUserRequest;
+import com.itRoad.users_service.dto.CreateUserRequest;
+import com.itRoad.users_service.dto.UpdateUserRequest;
+import com.itRoad.users_service.dto.UserFilter;
+import com.itRoad.users_service.repositories.ArchivedUserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+// Deployments without the archive DDL: no request may reach 'users_archive'
+@SpringBootTest(properties = "archive.enabled=false")
+@Import(TestUsers.class)
+class UserArchiveDisabledTests {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    @MockitoBean
+    private ArchivedUserRepository archivedUserRepository;
+
+    @AfterEach
+    void deleteUsers() {
+        verifyNoInteractions(archivedUserRepository);
+        testUsers.deleteAll();
+    }
+
+    @Test
+    void missingUsersAreNotFound() {
+        assertThrows(UserNotFoundException.class, () -> userService.getUserById(-999L));
+        assertThrows(UserNotFoundException.class, () -> userService.getUserByUsername("archive-off-missing"));
+        assertThrows(UserNotFoundException.class, () -> userService.updateUser(-999L, new UpdateUserRequest()));
+        assertThrows(UserNotFoundException.class, () -> userService.patchUser(-999L, new UpdateUserRequest()));
+        assertThrows(UserNotFoundException.class, () -> userService.deleteUser(-999L));
+        assertTrue(userService.loadUserForAuthentication("archive-off-missing").isEmpty());
+    }
+
+    @Test
+    void writesOnlyTouchTheHotTable() {
+        CreateUserRequest request = new CreateUserRequest();
+        request.setUsername("archive-off");
+        request.setName("archive-off");
+        request.setPassword("secret");
+        request.setRole("Adherant");
+        request.setEmail("archive-off@example.com");
+        Long id = userService.createUser(request).getId();
+        testUsers.save(TestUsers.user("archive-off-other"));
+
+        UserFilter filter = new UserFilter("archive-off", null, null);
+        assertEquals(2, userService.bulkUpdateStatus(new BulkUserRequest(null, filter, "Inactive", false)).getAffectedRows());
+        assertEquals(1, userService.bulkDelete(new BulkUserRequest(List.of(id), null, null, false), -1L).getAffectedRows());
+    }
+}
@@ -0,0 +1,138 @@
+package com.itRoad.users_service.services;
+
+import com.itRoad.users_service.Exceptions.UserNotFoundException;
+import com.itRoad.users_service.TestUsers;
+import com.itRoad.users_service.dto.UpdateUserRequest;
+import com.itRoad.users_service.models.User;
+import com.itRoad.users_service.repositories.ArchivedUserRepository;
+import com.itRoad.users_service.repositories.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "archive.batch-size=2")
+@Import(TestUsers.class)
+class UserArchiveTests {
+
+    private static final LocalDate LONG_AGO = LocalDate.now().minusYears(2);
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserArchiveService userArchiveService;
+
+    @Autowired
+    private JobLockService jobLockService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ArchivedUserRepository archivedUserRepository;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    private User conflicting;
+    private User inactive;
+    private User deleted;
+    private User recent;
+
+    @BeforeEach
+    void createUsers() {
+        // First in id order: its batch must not stop the others from being archived
+        conflicting = save("archive-conflict", LONG_AGO, "Active");
+        inactive = save("archive-inactive", LONG_AGO, "Active");
+        deleted = save("archive-deleted", LocalDate.now(), UserArchiveService.DELETED_STATUS);
+        recent = save("archive-recent", LocalDate.now(), "Active");
+
+        // An archived account already owns the email of 'conflicting'
+        testUsers.saveArchived(-1L, "archive-owner", conflicting.getEmail(), null, LONG_AGO);
+    }
+
+    @AfterEach
+    void deleteUsers() {
+        testUsers.deleteAll();
+    }
+
+    @Test
+    void archivesInactiveAndDeletedUsersAndSkipsConflicts() {
+        assertTrue(userArchiveService.archiveInactiveUsers() >= 2);
+
+        assertArchived(inactive);
+        assertArchived(deleted);
+        assertTrue(userRepository.existsById(recent.getId()));
+        assertTrue(userRepository.existsById(conflicting.getId()));
+        assertFalse(archivedUserRepository.existsById(conflicting.getId()));
+    }
+
+    @Test
+    void readsFallBackToTheArchiveAndLoginRestores() {
+        userArchiveService.archiveInactiveUsers();
+
+        assertEquals(inactive.getUsername(), userService.getUserById(inactive.getId()).getUsername());
+        assertEquals(deleted.getId(), userService.getUserByUsername(deleted.getUsername()).getId());
+
+        User restored = userService.loadUserForAuthentication(inactive.getUsername()).orElseThrow();
+        assertEquals("Active", restored.getStatus());
+        assertEquals(LocalDate.now(), restored.getLastLogin());
+        assertFalse(archivedUserRepository.existsById(inactive.getId()));
+
+        // Soft-deleted users stay archived
+        assertTrue(userService.loadUserForAuthentication(deleted.getUsername()).isEmpty());
+        assertArchived(deleted);
+    }
+
+    @Test
+    void updatesAndDeletesReachArchivedUsers() {
+        userArchiveService.archiveInactiveUsers();
+
+        UpdateUserRequest rename = new UpdateUserRequest();
+        rename.setName("Renamed");
+        assertEquals("Renamed", userService.updateUser(inactive.getId(), rename).getName());
+        assertEquals(LONG_AGO, userRepository.findById(inactive.getId()).orElseThrow().getLastLogin());
+        assertFalse(archivedUserRepository.existsById(inactive.getId()));
+
+        userService.deleteUser(deleted.getId());
+        assertFalse(archivedUserRepository.existsById(deleted.getId()));
+        assertThrows(UserNotFoundException.class, () -> userService.deleteUser(deleted.getId()));
+    }
+
+    @Test
+    void runsOnlyOnTheInstanceHoldingTheLock() {
+        assertTrue(jobLockService.tryAcquire("archive", Duration.ofMinutes(1)));
+        try {
+            assertEquals(0, userArchiveService.archiveInactiveUsers());
+            assertTrue(userRepository.existsById(inactive.getId()));
+        } finally {
+            jobLockService.release("archive");
+        }
+
+        assertTrue(userArchiveService.archiveInactiveUsers() >= 2);
+        assertArchived(inactive);
+    }
+
+    private void assertArchived(User user) {
+        assertFalse(userRepository.existsById(user.getId()));
+        assertTrue(archivedUserRepository.existsById(user.getId()));
+    }
+
+    private User save(String username, LocalDate lastLogin, String status) {
+        User user = TestUsers.user(username);
+        user.setLastLogin(lastLogin);
+        user.setStatus(status);
+        return testUsers.save(user);
+    }
+}
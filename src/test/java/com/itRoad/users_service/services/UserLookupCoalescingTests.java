@@ -0,0 +1,126 @@
+package com.itRoad.users_service.services;
+
+import com.itRoad.users_service.dto.UpdateUserRequest;
+import com.itRoad.users_service.dto.UserDTO;
+import com.itRoad.users_service.models.User;
+import com.itRoad.users_service.repositories.UserJdbcSupport;
+import com.itRoad.users_service.repositories.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Coalescing of {@link UserService} lookups against the real repository: concurrent reads share
+ * one query, and a read arriving after a write never shares a query started before it.
+ */
+@SpringBootTest
+class UserLookupCoalescingTests {
+
+    private static final int CALLERS = 32;
+
+    @MockitoSpyBean
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long id;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setUsername("coalesced");
+        user.setPassword("secret");
+        user.setName("Before");
+        id = userRepository.save(user).getId();
+        clearInvocations(userRepository);
+        executor = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        userRepository.deleteById(id);
+    }
+
+    // The repository is a proxy over an interface, the stubs read the row with plain JDBC instead
+    private Optional<User> readFromDatabase() {
+        return jdbcTemplate.query("SELECT " + UserJdbcSupport.SELECT_COLUMNS + " FROM users WHERE id = ?",
+                UserJdbcSupport.USER_ROW_MAPPER, id).stream().findFirst();
+    }
+
+    @Test
+    void concurrentReadsOfOneUserRunOneQuery() throws Exception {
+        CountDownLatch arrived = new CountDownLatch(CALLERS);
+        doAnswer(invocation -> {
+            // Hold the query until every caller has asked for the user
+            arrived.await(5, TimeUnit.SECONDS);
+            Thread.sleep(100);
+            return readFromDatabase();
+        }).when(userRepository).findWithProfileById(id);
+
+        List<Future<UserDTO>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> {
+                arrived.countDown();
+                return userService.getUserById(id);
+            }));
+        }
+        for (Future<UserDTO> result : results) {
+            assertEquals("Before", result.get(10, TimeUnit.SECONDS).getName());
+        }
+        verify(userRepository, times(1)).findWithProfileById(id);
+    }
+
+    @Test
+    void readAfterWriteDoesNotJoinAnOlderQuery() throws Exception {
+        CountDownLatch staleReadStarted = new CountDownLatch(1);
+        CountDownLatch releaseStaleRead = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            Optional<User> beforeWrite = readFromDatabase();
+            staleReadStarted.countDown();
+            releaseStaleRead.await(5, TimeUnit.SECONDS);
+            return beforeWrite;
+        }).doAnswer(invocation -> readFromDatabase()).when(userRepository).findWithProfileById(id);
+
+        Future<UserDTO> staleRead = executor.submit(() -> userService.getUserById(id));
+        assertTrue(staleReadStarted.await(5, TimeUnit.SECONDS));
+
+        UpdateUserRequest update = new UpdateUserRequest();
+        update.setName("After");
+        userService.updateUser(id, update);
+
+        // Joining the in-flight read would block until it is released and return "Before"
+        Future<UserDTO> freshRead = executor.submit(() -> userService.getUserById(id));
+        assertEquals("After", freshRead.get(2, TimeUnit.SECONDS).getName());
+
+        releaseStaleRead.countDown();
+        assertEquals("Before", staleRead.get(5, TimeUnit.SECONDS).getName());
+        // Both reads, plus the load of the update itself
+        verify(userRepository, times(3)).findWithProfileById(id);
+    }
+}
@@ -0,0 +1,159 @@
+package com.itRoad.users_service.services;
+
+import com.itRoad.users_service.Exceptions.EmailAlreadyExistsException;
+import com.itRoad.users_service.Exceptions.PhoneNumberAlreadyExistsException;
+import com.itRoad.users_service.Exceptions.UserNotFoundException;
+import com.itRoad.users_service.TestUsers;
+import com.itRoad.users_service.dto.UpdateUserRequest;
+import com.itRoad.users_service.dto.UserDTO;
+import com.itRoad.users_service.models.ArchivedUser;
+import com.itRoad.users_service.models.User;
+import com.itRoad.users_service.repositories.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// H2 has no UPDATE ... RETURNING: these tests cover the update then read-back path, UserJdbcSupportTests the other
+@SpringBootTest
+@AutoConfigureMockMvc
+@Import(TestUsers.class)
+class UserPatchTests {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserArchiveService userArchiveService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private User first;
+    private User second;
+    private ArchivedUser archived;
+
+    @BeforeEach
+    void createUsers() {
+        first = save("patch-first", "+100");
+        second = save("patch-second", "+200");
+        archived = testUsers.saveArchived(-10L, "patch-archived", "patch-archived@example.com", "+300",
+                LocalDate.now().minusYears(2));
+    }
+
+    @AfterEach
+    void deleteUsers() {
+        testUsers.deleteAll();
+    }
+
+    @Test
+    void writesOnlyProvidedFieldsAndReturnsTheUpdatedRow() {
+        UserDTO patched = userService.patchUser(first.getId(), request(" Patched ", null, "  hello ", null));
+
+        assertEquals("Patched", patched.getName());
+        assertEquals("hello", patched.getBio());
+        assertEquals(first.getEmail(), patched.getEmail());
+        assertEquals("Patched", userService.getUserById(first.getId()).getName());
+        assertEquals("hello", userRepository.findWithProfileById(first.getId()).orElseThrow().getBio());
+    }
+
+    @Test
+    void unknownUserIsNotFound() {
+        assertThrows(UserNotFoundException.class, () -> userService.patchUser(-999L, request("x", null, null, null)));
+    }
+
+    @Test
+    void uniqueViolationsMapToConflicts() {
+        assertThrows(EmailAlreadyExistsException.class,
+                () -> userService.patchUser(second.getId(), request(null, first.getEmail(), null, null)));
+        assertThrows(PhoneNumberAlreadyExistsException.class,
+                () -> userService.patchUser(second.getId(), request(null, null, null, first.getPhoneNumber())));
+        assertEquals(second.getEmail(), userRepository.findById(second.getId()).orElseThrow().getEmail());
+    }
+
+    @Test
+    void emailAndPhoneOfArchivedUsersAreTaken() {
+        assertThrows(EmailAlreadyExistsException.class,
+                () -> userService.patchUser(first.getId(), request(null, archived.getEmail(), null, null)));
+        assertThrows(PhoneNumberAlreadyExistsException.class,
+                () -> userService.patchUser(first.getId(), request(null, null, null, archived.getPhoneNumber())));
+
+        // The archived user can still log in
+        assertTrue(userService.loadUserForAuthentication(archived.getUsername()).isPresent());
+    }
+
+    @Test
+    void archivedUserIsRestoredAndPatched() {
+        UserDTO patched = userService.patchUser(archived.getId(), request(null, archived.getEmail(), "bio", null));
+
+        assertEquals("bio", patched.getBio());
+        assertTrue(userRepository.existsById(archived.getId()));
+        assertTrue(userArchiveService.findArchivedById(archived.getId()).isEmpty());
+    }
+
+    @Test
+    void archivedUserClashingWithAHotUserIsNotRestored() {
+        // Taken directly in the hot table, bypassing the service checks
+        userRepository.patch(first.getId(), Map.of("email", archived.getEmail()));
+
+        assertTrue(userService.loadUserForAuthentication(archived.getUsername()).isEmpty());
+        assertThrows(EmailAlreadyExistsException.class,
+                () -> userService.patchUser(archived.getId(), request("x", null, null, null)));
+        assertTrue(userArchiveService.findArchivedById(archived.getId()).isPresent());
+    }
+
+    @Test
+    void patchEndpointIsOpenToAdminsAndToTheUserThemself() throws Exception {
+        User admin = TestUsers.user("patch-admin");
+        admin.setRole("Admin");
+        admin = testUsers.save(admin);
+        String body = "{\"bio\": \"via http\"}";
+
+        mockMvc.perform(patch("/api/users/" + first.getId()).contentType(MediaType.APPLICATION_JSON).content(body)
+                        .header("Authorization", testUsers.bearer(first)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.bio").value("via http"));
+        mockMvc.perform(patch("/api/users/" + first.getId()).contentType(MediaType.APPLICATION_JSON).content(body)
+                        .header("Authorization", testUsers.bearer(second)))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(patch("/api/users/" + second.getId()).contentType(MediaType.APPLICATION_JSON).content(body)
+                        .header("Authorization", testUsers.bearer(admin)))
+                .andExpect(status().isOk());
+    }
+
+    private static UpdateUserRequest request(String name, String email, String bio, String phoneNumber) {
+        UpdateUserRequest request = new UpdateUserRequest();
+        request.setName(name);
+        request.setEmail(email);
+        request.setBio(bio);
+        request.setPhoneNumber(phoneNumber);
+        return request;
+    }
+
+    private User save(String username, String phoneNumber) {
+        User user = TestUsers.user(username);
+        user.setPhoneNumber(phoneNumber);
+        return testUsers.save(user);
+    }
+}
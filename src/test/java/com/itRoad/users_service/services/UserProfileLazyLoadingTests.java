@@ -0,0 +1,63 @@
+package com.itRoad.users_service.services;
+
+import com.itRoad.users_service.TestUsers;
+import com.itRoad.users_service.dto.UserDTO;
+import com.itRoad.users_service.dto.UserSummaryDTO;
+import com.itRoad.users_service.models.User;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@SpringBootTest
+@Import(TestUsers.class)
+class UserProfileLazyLoadingTests {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    private Long id;
+
+    @BeforeEach
+    void createUser() {
+        User user = TestUsers.user("profile-user");
+        user.setBio("A long biography");
+        user.setAddress("1 Main Street");
+        id = testUsers.save(user).getId();
+    }
+
+    @AfterEach
+    void deleteUser() {
+        testUsers.deleteAll();
+    }
+
+    @Test
+    void authenticationLookupReadsTheNarrowRow() {
+        User user = userService.loadUserForAuthentication("profile-user").orElseThrow();
+
+        assertFalse(Hibernate.isPropertyInitialized(user, "bio"));
+        assertFalse(Hibernate.isPropertyInitialized(user, "address"));
+        assertEquals("Adherant", user.getRole());
+    }
+
+    @Test
+    void listViewsLeaveProfileOutAndGetUserByIdReturnsIt() {
+        UserSummaryDTO listed = userService.getAllUsers().stream()
+                .filter(dto -> dto.getId().equals(id))
+                .findFirst().orElseThrow();
+        assertEquals("profile-user", listed.getUsername());
+
+        UserDTO full = userService.getUserById(id);
+        assertEquals("A long biography", full.getBio());
+        assertEquals("1 Main Street", full.getAddress());
+    }
+}
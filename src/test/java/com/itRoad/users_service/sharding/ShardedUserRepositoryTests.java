@@ -0,0 +1,348 @@
+package com.itRoad.users_service.sharding;
+
+import com.itRoad.users_service.models.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardedUserRepositoryTests {
+
+    private static final int USERS = 300;
+
+    private final String run = UUID.randomUUID().toString();
+    private final DataSource directory = h2("directory");
+    private final List<ShardedUserRepository> repositories = new ArrayList<>();
+
+    @AfterEach
+    void closeRepositories() {
+        repositories.forEach(ShardedUserRepository::close);
+    }
+
+    @Test
+    void usersAreSpreadOverShardsAndFoundByKey() {
+        ShardedUserRepository repository = repository(3);
+        List<User> saved = saveUsers(repository, USERS);
+
+        Set<String> usedShards = new HashSet<>();
+        for (User user : saved) {
+            usedShards.add(repository.ring().shardFor(user.getId()));
+        }
+        assertEquals(3, usedShards.size());
+
+        User user = saved.get(123);
+        assertEquals(user.getUsername(), repository.findById(user.getId()).orElseThrow().getUsername());
+        assertEquals(user.getId(), repository.findByUsername(user.getUsername()).orElseThrow().getId());
+        assertTrue(repository.existsByEmail(user.getEmail()));
+        assertEquals(USERS, repository.count());
+    }
+
+    @Test
+    void scatterGatherQueriesMergeAllShards() {
+        ShardedUserRepository repository = repository(3);
+        saveUsers(repository, USERS);
+
+        assertEquals(USERS, repository.findAll().size());
+        assertEquals(USERS / 2, repository.findByRole("Admin").size());
+        assertEquals(11, repository.findByFilters("user-29", null).size()); // user-29, user-290..299
+
+        List<Long> firstPage = repository.findIdsByFilters(null, "Admin", null, 0L, PageRequest.of(0, 50));
+        assertEquals(50, firstPage.size());
+        assertEquals(firstPage.stream().sorted().toList(), firstPage);
+
+        List<Long> admins = repository.findByRole("Admin").stream().map(User::getId).toList();
+        assertEquals(admins.size(), repository.updateStatusByIds(admins, "Inactive"));
+        assertEquals(admins.size(), repository.findByStatus("Inactive").size());
+        assertEquals(10, repository.deleteByIds(admins.subList(0, 10)));
+        assertEquals(USERS - 10, repository.count());
+    }
+
+    @Test
+    void projectionSelectsOnlyRequestedFieldsInIdOrder() {
+        ShardedUserRepository repository = repository(3);
+        saveUsers(repository, 30);
+
+        List<Map<String, Object>> rows = repository.findProjectedByFilters(List.of("username", "role"), null, "Admin");
+        assertEquals(15, rows.size());
+        assertEquals(List.of("username", "role"), List.copyOf(rows.get(0).keySet()));
+        assertEquals("user-2", rows.get(0).get("username"));
+        assertEquals("user-30", rows.get(14).get("username"));
+    }
+
+    @Test
+    void patchKeepsEmailUniqueAcrossShards() {
+        ShardedUserRepository repository = repository(3);
+        List<User> saved = saveUsers(repository, 10);
+
+        User first = saved.get(0);
+        User second = saved.get(1);
+        assertThrows(DataIntegrityViolationException.class,
+                () -> repository.patch(second.getId(), Map.of("email", first.getEmail())));
+
+        User patched = repository.patch(second.getId(), Map.of("email", "new@example.com", "bio", "hi")).orElseThrow();
+        assertEquals("hi", patched.getBio());
+        assertEquals(second.getId(), repository.findByEmail("new@example.com").orElseThrow().getId());
+    }
+
+    @Test
+    void failedShardWriteLeavesTheDirectoryAsItWas() {
+        ShardedUserRepository repository = repository(3);
+        User user = saveUsers(repository, 1).get(0);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> repository.patch(user.getId(), Map.of("email", "patched@example.com", "password", "x")));
+        assertTrue(repository.existsByEmail(user.getEmail()));
+        assertFalse(repository.existsByEmail("patched@example.com"));
+
+        User renamed = repository.findById(user.getId()).orElseThrow();
+        renamed.setUsername("renamed");
+        renamed.setName("n".repeat(300)); // too long for the shard column
+        assertThrows(DataIntegrityViolationException.class, () -> repository.save(renamed));
+        assertTrue(repository.existsByUsername(user.getUsername()));
+        assertFalse(repository.existsByUsername("renamed"));
+    }
+
+    @Test
+    void onlyTheProfileLookupReadsBioAndAddress() {
+        ShardedUserRepository repository = repository(3);
+        User user = saveUsers(repository, 1).get(0);
+        repository.patch(user.getId(), Map.of("bio", "hi", "address", "1 Main Street"));
+
+        User login = repository.findByUsername(user.getUsername()).orElseThrow();
+        assertNull(login.getBio());
+        assertNull(repository.findAll().get(0).getAddress());
+
+        // Saving a user read without its profile keeps the profile
+        login.setName("Renamed");
+        repository.save(login);
+        User profile = repository.findWithProfileById(user.getId()).orElseThrow();
+        assertEquals("Renamed", profile.getName());
+        assertEquals("hi", profile.getBio());
+        assertEquals("1 Main Street", profile.getAddress());
+    }
+
+    @Test
+    void addingAShardMovesAboutAQuarterOfTheUsersAndRebalances() {
+        ShardedUserRepository before = repository(3);
+        List<User> saved = saveUsers(before, USERS);
+
+        ShardedUserRepository after = repository(4);
+        long misplaced = saved.stream()
+                .filter(user -> !before.ring().shardFor(user.getId()).equals(after.ring().shardFor(user.getId())))
+                .count();
+        assertTrue(misplaced > USERS / 8 && misplaced < USERS * 3 / 8, "moved " + misplaced);
+
+        // Still readable before the rebalance through the directory
+        for (User user : saved) {
+            assertTrue(after.findById(user.getId()).isPresent());
+        }
+
+        assertEquals(misplaced, new ShardRebalancer(after, 64).rebalance());
+        assertEquals(0, new ShardRebalancer(after, 64).rebalance());
+        assertEquals(USERS, after.count());
+        for (User user : saved) {
+            assertEquals(user.getUsername(), after.findByUsername(user.getUsername()).orElseThrow().getUsername());
+        }
+    }
+
+    @Test
+    void userDeletedDuringAMoveStaysDeleted() {
+        ShardedUserRepository before = repository(3);
+        List<User> saved = saveUsers(before, 60);
+        ConsistentHashRing four = new ConsistentHashRing(List.of("shard-0", "shard-1", "shard-2", "shard-3"), 128);
+        // The rebalancer walks the shards in order and each shard by id: this is the first user it copies
+        User victim = before.shards().keySet().stream()
+                .flatMap(shard -> saved.stream().filter(user -> before.ring().shardFor(user.getId()).equals(shard)))
+                .filter(user -> four.shardFor(user.getId()).equals("shard-3"))
+                .findFirst().orElseThrow();
+        long misplaced = saved.stream().filter(user -> four.shardFor(user.getId()).equals("shard-3")).count();
+
+        // The user is deleted after the rebalancer read its source row, before the copy is inserted
+        AtomicReference<ShardedUserRepository> after = new AtomicReference<>();
+        Map<String, DataSource> shards = new LinkedHashMap<>();
+        for (int i = 0; i < 3; i++) {
+            shards.put("shard-" + i, h2("shard-" + i));
+        }
+        shards.put("shard-3", beforeFirst("INSERT INTO users", h2("shard-3"),
+                () -> after.get().deleteByIds(List.of(victim.getId()))));
+        after.set(new ShardedUserRepository(shards, directory, 128, 4));
+        repositories.add(after.get());
+
+        assertEquals(misplaced - 1, new ShardRebalancer(after.get(), 64).rebalance());
+        assertTrue(after.get().findById(victim.getId()).isEmpty());
+        assertTrue(after.get().findByUsername(victim.getUsername()).isEmpty());
+        assertEquals(59, after.get().count());
+    }
+
+    @Test
+    void writeToTheCopyDuringAMoveIsKept() {
+        ShardedUserRepository before = repository(3);
+        List<User> saved = saveUsers(before, 60);
+        ConsistentHashRing four = new ConsistentHashRing(List.of("shard-0", "shard-1", "shard-2", "shard-3"), 128);
+        User moving = saved.stream()
+                .filter(user -> before.ring().shardFor(user.getId()).equals("shard-0"))
+                .filter(user -> four.shardFor(user.getId()).equals("shard-3"))
+                .findFirst().orElseThrow();
+
+        // Once the copy exists, the source row turns out stale (a write landed there before the copy)
+        // and a newer write reaches the copy, which the ring now owns
+        AtomicReference<ShardedUserRepository> after = new AtomicReference<>();
+        Map<String, DataSource> shards = new LinkedHashMap<>();
+        shards.put("shard-0", beforeFirst("DELETE FROM users WHERE id = ? AND", h2("shard-0"), () -> {
+            new JdbcTemplate(h2("shard-0")).update("UPDATE users SET name = 'stale' WHERE id = ?", moving.getId());
+            after.get().patch(moving.getId(), Map.of("name", "latest"));
+        }));
+        for (int i = 1; i < 4; i++) {
+            shards.put("shard-" + i, h2("shard-" + i));
+        }
+        after.set(new ShardedUserRepository(shards, directory, 128, 4));
+        repositories.add(after.get());
+
+        new ShardRebalancer(after.get(), 64).rebalance();
+        assertEquals("latest", after.get().findById(moving.getId()).orElseThrow().getName());
+        assertEquals(60, after.get().count());
+        assertEquals(0, new ShardRebalancer(after.get(), 64).rebalance());
+    }
+
+    @Test
+    void primaryUsersAreImportedWithTheirIds() {
+        JdbcTemplate primary = primaryTables();
+        for (long id = 1; id <= 35; id++) {
+            primary.update("INSERT INTO " + (id <= 30 ? "users" : "users_archive")
+                            + " (id, username, password, role, name, email, status) VALUES (?, ?, 'secret', 'Adherant', ?, ?, 'Active')",
+                    id * 10, "legacy-" + id, "legacy-" + id, "legacy-" + id + "@example.com");
+        }
+
+        ShardedUserRepository repository = repository(3);
+        // Ids allocated before the import already skip the primary ids
+        User created = saveUsers(repository, 1).get(0);
+        assertEquals(351L, created.getId());
+
+        ShardRebalancer rebalancer = new ShardRebalancer(repository, 7);
+        assertEquals(35, rebalancer.importFromPrimary());
+        assertEquals(0, rebalancer.importFromPrimary());
+
+        assertEquals(36, repository.count());
+        assertEquals(50L, repository.findByUsername("legacy-5").orElseThrow().getId());
+        assertEquals("legacy-33", repository.findById(330L).orElseThrow().getUsername());
+        assertEquals(0, primary.queryForObject("SELECT COUNT(*) FROM users_archive", Long.class));
+        assertEquals(30, primary.queryForObject("SELECT COUNT(*) FROM users", Long.class));
+        assertTrue(repository.existsByEmail("legacy-30@example.com"));
+
+        // Deleted while sharded: the primary row goes too, so the next import does not restore it
+        repository.deleteByIds(List.of(50L));
+        assertEquals(0, rebalancer.importFromPrimary());
+        assertTrue(repository.findByUsername("legacy-5").isEmpty());
+    }
+
+    @Test
+    void primaryAdminCanLogInOnceTheStartupImportRan() {
+        JdbcTemplate primary = primaryTables();
+        primary.update("INSERT INTO users (id, username, password, role) VALUES (1, 'legacy-admin', 'secret', 'Admin')");
+        ShardedUserRepository repository = repository(2);
+        assertTrue(repository.findByUsername("legacy-admin").isEmpty());
+
+        new ShardingConfig().shardImportOnStartup(new ShardRebalancer(repository, 10), new ShardingProperties())
+                .afterSingletonsInstantiated();
+        assertEquals("Admin", repository.findByUsername("legacy-admin").orElseThrow().getRole());
+    }
+
+    @Test
+    void ringMovesOnlyKeysOfTheNewShard() {
+        ConsistentHashRing three = new ConsistentHashRing(List.of("a", "b", "c"), 128);
+        ConsistentHashRing four = new ConsistentHashRing(List.of("a", "b", "c", "d"), 128);
+        long moved = LongStream.rangeClosed(1, 100_000)
+                .filter(id -> !three.shardFor(id).equals(four.shardFor(id)))
+                .peek(id -> assertEquals("d", four.shardFor(id)))
+                .count();
+        assertEquals(0.25, moved / 100_000.0, 0.05);
+    }
+
+    private ShardedUserRepository repository(int shardCount) {
+        Map<String, DataSource> shards = new LinkedHashMap<>();
+        for (int i = 0; i < shardCount; i++) {
+            shards.put("shard-" + i, h2("shard-" + i));
+        }
+        ShardedUserRepository repository = new ShardedUserRepository(shards, directory, 128, 4);
+        repositories.add(repository);
+        return repository;
+    }
+
+    // The unsharded tables JPA creates on the primary database, which also holds the directory
+    private JdbcTemplate primaryTables() {
+        JdbcTemplate primary = new JdbcTemplate(directory);
+        primary.execute("CREATE TABLE users (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                + "username VARCHAR(255) NOT NULL UNIQUE, password VARCHAR(255) NOT NULL, role VARCHAR(255) NOT NULL, "
+                + "name VARCHAR(255), email VARCHAR(255) UNIQUE, status VARCHAR(255), last_login DATE, "
+                + "address VARCHAR(255), bio VARCHAR(255), phone_number VARCHAR(255) UNIQUE)");
+        primary.execute("CREATE TABLE users_archive AS SELECT * FROM users WITH NO DATA");
+        return primary;
+    }
+
+    private static List<User> saveUsers(ShardedUserRepository repository, int count) {
+        List<User> saved = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            User user = new User();
+            user.setUsername("user-" + i);
+            user.setPassword("secret");
+            user.setRole(i % 2 == 0 ? "Admin" : "Adherant");
+            user.setName("user-" + i);
+            user.setEmail("user-" + i + "@example.com");
+            user.setStatus("Active");
+            saved.add(repository.save(user));
+        }
+        return saved;
+    }
+
+    // Runs 'action' once, right before the first statement starting with 'sql' is prepared on this data source
+    private static DataSource beforeFirst(String sql, DataSource dataSource, Runnable action) {
+        AtomicBoolean done = new AtomicBoolean();
+        return new DelegatingDataSource(dataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                Connection connection = super.getConnection();
+                return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                        (proxy, method, args) -> {
+                            if (method.getName().equals("prepareStatement")
+                                    && ((String) args[0]).startsWith(sql) && done.compareAndSet(false, true)) {
+                                action.run();
+                            }
+                            try {
+                                return method.invoke(connection, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                        });
+            }
+        };
+    }
+
+    private DataSource h2(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + "-" + run + ";DB_CLOSE_DELAY=-1");
+    }
+}
@@ -0,0 +1,92 @@
+package com.itRoad.users_service.warmup;
+
+import com.itRoad.users_service.models.User;
+import com.itRoad.users_service.repositories.UserRepository;
+import com.itRoad.users_service.security.JwtService;
+import com.itRoad.users_service.security.RejectedTokenCache;
+import com.itRoad.users_service.services.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "warmup.enabled=true",
+        "warmup.http-requests=40",
+        "warmup.budget-seconds=120",
+        "management.endpoint.health.probes.enabled=true",
+        "management.endpoint.health.group.readiness.include=readinessState,warmup"})
+class StartupWarmupTests {
+
+    @Autowired
+    private StartupWarmup startupWarmup;
+
+    @Autowired
+    private RejectedTokenCache rejectedTokenCache;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @MockitoSpyBean
+    private JwtService jwtService;
+
+    @MockitoSpyBean
+    private UserService userService;
+
+    @Test
+    void readinessWaitsForWarmup() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (!startupWarmup.isReady() && System.currentTimeMillis() < deadline) {
+            ResponseEntity<String> readiness = restTemplate.getForEntity("/actuator/health/readiness", String.class);
+            // Warm-up may finish while the probe is answered
+            if (!startupWarmup.isReady()) {
+                assertEquals(503, readiness.getStatusCode().value());
+            }
+            Thread.sleep(20);
+        }
+
+        ResponseEntity<String> readiness = restTemplate.getForEntity("/actuator/health/readiness", String.class);
+        assertEquals(200, readiness.getStatusCode().value());
+        assertEquals(StartupWarmup.State.COMPLETED, startupWarmup.getState());
+        // The synthetic HTTP traffic went through the JWT filter
+        assertTrue(rejectedTokenCache.size() > 0);
+    }
+
+    @Test
+    void warmupNeverActsAsARealUser() throws InterruptedException {
+        while (!startupWarmup.isReady()) {
+            Thread.sleep(20);
+        }
+        User user = new User();
+        user.setUsername("warmup-real-user");
+        user.setPassword("secret");
+        user.setName("Real");
+        user.setEmail("warmup-real-user@example.com");
+        user = userRepository.save(user);
+        try {
+            startupWarmup.run();
+            assertEquals(StartupWarmup.State.COMPLETED, startupWarmup.getState());
+
+            verify(userService, never()).loadUserForAuthentication(user.getUsername());
+            verify(jwtService, never()).generateToken(eq(user.getUsername()), any(), anyLong());
+            verify(jwtService, atLeastOnce()).generateToken(argThat(subject -> subject.length() > 50), any(), anyLong());
+        } finally {
+            userRepository.deleteById(user.getId());
+        }
+    }
+}